@@ -0,0 +1,136 @@
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Santa Claus Problem - Allocation Check
+ *
+ * Checks that the Santa/Reindeer/Elf cycle allocates nothing once warmed up.
+ * Runs a simulation on the scaled clock with the async log writing into a
+ * null stream, lets it warm up, then reads every actor thread's allocated
+ * byte count (com.sun.management.ThreadMXBean) before and after each of a
+ * few measured stretches of simulated time. The last stretch must show no
+ * byte allocated by Santa, a reindeer, an elf or the log thread. Earlier
+ * stretches may still see a few hundred bytes of one-off JVM linkage as
+ * the JIT moves methods between tiers; a real per-cycle allocation shows
+ * up as thousands of bytes in every stretch.
+ *
+ * Only the monitor and lockfree engines are checked by default: the
+ * condition and phaser engines block through java.util.concurrent classes
+ * that allocate a wait node whenever a thread has to queue, and the virtual
+ * clock allocates a record per sleep.
+ *
+ * Usage: java AllocationCheck [--engine=<name>[,<name>...]] [--clock=scaled:<k>] [--num-elves=<n>]
+ */
+public class AllocationCheck {
+    private static final int NUM_REINDEER = 9;
+    private static final int NUM_ELVES = 10;
+    private static final int ELF_GROUP_SIZE = 3;
+    private static final long WARMUP_TIME = 1000000; // simulated milliseconds
+    private static final long MEASURED_TIME = 1000000; // simulated milliseconds, per stretch
+    private static final int STRETCHES = 3;
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        com.sun.management.ThreadMXBean bean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        bean.setThreadAllocatedMemoryEnabled(true);
+        return bean;
+    }
+
+    private static long[] allocatedBytes(com.sun.management.ThreadMXBean bean, List<Thread> threads) {
+        long[] ids = new long[threads.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = threads.get(i).getId();
+        }
+        return bean.getThreadAllocatedBytes(ids);
+    }
+
+    /**
+     * Run one engine and return the number of bytes its actors allocated in the last stretch
+     */
+    private static long check(String engine, String clockMode, int numElves) throws InterruptedException {
+        com.sun.management.ThreadMXBean bean = threadBean();
+        SimClock clock = SimClock.create(clockMode);
+        RingBufferLog log = new RingBufferLog(clock, new RingBufferLog.TextWriter(OutputStream.nullOutputStream()));
+        NorthPoleCoordinator coordinator = NorthPoleCoordinator.create(engine, NUM_REINDEER, numElves,
+                ELF_GROUP_SIZE, true, false, false, clock, log);
+        SantaClaus northPole = new SantaClaus(coordinator, clock, log, 1, NUM_REINDEER, numElves,
+                ELF_GROUP_SIZE, false);
+
+        northPole.start();
+        clock.sleep(WARMUP_TIME);
+
+        // Santa, the herd and the elves, then the log thread
+        List<Thread> threads = new ArrayList<>(northPole.threads());
+        threads.add(log.thread());
+
+        long total = 0;
+        for (int stretch = 1; stretch <= STRETCHES; stretch++) {
+            int deliveries = northPole.deliveries();
+            int consultations = northPole.elfConsultations();
+            long[] before = allocatedBytes(bean, threads);
+
+            clock.sleep(MEASURED_TIME);
+
+            long[] after = allocatedBytes(bean, threads);
+            deliveries = northPole.deliveries() - deliveries;
+            consultations = northPole.elfConsultations() - consultations;
+
+            long santa = after[0] - before[0];
+            long reindeer = 0;
+            for (int i = 1; i <= NUM_REINDEER; i++) {
+                reindeer += after[i] - before[i];
+            }
+            long elves = 0;
+            for (int i = NUM_REINDEER + 1; i < threads.size() - 1; i++) {
+                elves += after[i] - before[i];
+            }
+            long logThread = after[threads.size() - 1] - before[threads.size() - 1];
+            total = santa + reindeer + elves + logThread;
+
+            System.out.printf("  %-10s #%d %3d deliveries, %4d consultations | bytes allocated: santa %d,"
+                    + " reindeer %d, elves %d, log %d%n", engine + ":", stretch, deliveries, consultations,
+                    santa, reindeer, elves, logThread);
+        }
+
+        northPole.stop();
+        log.close();
+        return total;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        String[] engines = {"monitor", "lockfree"};
+        String clockMode = "scaled:1000";
+        int numElves = NUM_ELVES;
+        for (String arg : args) {
+            if (arg.startsWith("--engine=")) {
+                engines = arg.substring("--engine=".length()).split(",");
+            } else if (arg.startsWith("--clock=")) {
+                clockMode = arg.substring("--clock=".length());
+            } else if (arg.startsWith("--num-elves=")) {
+                numElves = Integer.parseInt(arg.substring("--num-elves=".length()));
+            } else {
+                System.err.println("Unknown option: " + arg);
+                System.exit(1);
+            }
+        }
+
+        System.out.println("============================================================");
+        System.out.println("ALLOCATION CHECK - " + WARMUP_TIME + " ms warm-up, " + STRETCHES + " x "
+                + MEASURED_TIME + " ms measured (simulated, " + clockMode + " clock)");
+        System.out.println("============================================================");
+
+        boolean clean = true;
+        for (String engine : engines) {
+            clean &= check(engine, clockMode, numElves) == 0;
+        }
+
+        System.out.println("============================================================");
+        System.out.println(clean ? "PASS: steady state allocates nothing" : "FAIL: steady state allocates");
+        System.out.println("============================================================");
+        if (!clean) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,262 @@
+import java.util.ArrayDeque;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Santa Claus Problem - ReentrantLock/Condition Coordination Engine
+ *
+ * One ReentrantLock guards all counters. Instead of notifyAll on a shared
+ * monitor, every waiting point has its own Condition so a signal only reaches
+ * threads that can move forward:
+ *
+ * 1. santaWake       - Santa sleeps here until a group is ready
+ * 2. teamOpen        - reindeer that returned while a team is full or harnessing
+ * 3. harnessAllowed  - the reindeer of the current team
+ * 4. harnessDone     - Santa waits here for the last harnessed reindeer
+ * 5. consultAllowed  - one Condition per elf group, signalled when Santa meets it
+ * 6. consultDone     - Santa waits here for the last consulted elf
+ *
+ * Harnessing and consultations run outside the lock.
+ *
+ * Each Condition keeps count of its waiters for the virtual clock (see
+ * SimClock), which has to know when every actor is blocked.
+ */
+public class ConditionCoordinator implements NorthPoleCoordinator {
+    private final int numReindeer;
+    private final int elfGroupSize;
+    private final SimClock clock;
+    private final NorthPoleLog log;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final CountedCondition santaWake;
+    private final CountedCondition teamOpen;
+    private final CountedCondition harnessAllowed;
+    private final CountedCondition harnessDone;
+    private final CountedCondition consultDone;
+
+    // Reindeer state
+    private int reindeerCount = 0;
+    private boolean reindeerReady = false;
+    private boolean harnessing = false;
+    private int harnessedCount = 0;
+
+    // Elf state: groups are numbered in the order they form
+    private int waitingElves = 0;
+    private long groupsFormed = 0;
+    private long groupsReleased = 0;
+    private int consultedCount = 0;
+    private CountedCondition consultAllowed;
+    private final ArrayDeque<CountedCondition> formedGroups = new ArrayDeque<>();
+
+    /**
+     * A Condition that tells the clock when a thread blocks on it and when a
+     * signal wakes one. The counts are guarded by the lock.
+     */
+    private static class CountedCondition {
+        private final Condition condition;
+        private final SimClock clock;
+        private int waiting = 0;
+        private int signalled = 0;
+
+        CountedCondition(Condition condition, SimClock clock) {
+            this.condition = condition;
+            this.clock = clock;
+        }
+
+        void await() throws InterruptedException {
+            waiting++;
+            clock.blocked(1);
+            try {
+                condition.await();
+            } finally {
+                // A signalled thread was counted by the signal, an interrupted one puts itself back
+                if (signalled > 0) {
+                    signalled--;
+                } else {
+                    waiting--;
+                    clock.woke(1);
+                }
+            }
+        }
+
+        void signal() {
+            if (waiting > 0) {
+                waiting--;
+                signalled++;
+                clock.woke(1);
+            }
+            condition.signal();
+        }
+
+        void signalAll() {
+            signalled += waiting;
+            clock.woke(waiting);
+            waiting = 0;
+            condition.signalAll();
+        }
+    }
+
+    public ConditionCoordinator(int numReindeer, int elfGroupSize, SimClock clock, NorthPoleLog log) {
+        this.numReindeer = numReindeer;
+        this.elfGroupSize = elfGroupSize;
+        this.clock = clock;
+        this.log = log;
+        this.santaWake = newCondition();
+        this.teamOpen = newCondition();
+        this.harnessAllowed = newCondition();
+        this.harnessDone = newCondition();
+        this.consultDone = newCondition();
+        this.consultAllowed = newCondition();
+    }
+
+    private CountedCondition newCondition() {
+        return new CountedCondition(lock.newCondition(), clock);
+    }
+
+    public String description() {
+        return "ReentrantLock with per-role Conditions";
+    }
+
+    public Group awaitSantaWork() throws InterruptedException {
+        lock.lock();
+        try {
+            while (!reindeerReady && groupsFormed == groupsReleased) {
+                santaWake.await();
+            }
+            // Reindeer have priority
+            return reindeerReady ? Group.REINDEER : Group.ELVES;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void releaseGroup(Group group, GroupWork santaWork) throws InterruptedException {
+        if (group == Group.REINDEER) {
+            releaseReindeer();
+        } else {
+            releaseElves();
+        }
+        santaWork.run();
+    }
+
+    private void releaseReindeer() throws InterruptedException {
+        lock.lock();
+        try {
+            reindeerReady = false;
+            reindeerCount = 0;
+            harnessedCount = 0;
+
+            // Only the team waits on harnessAllowed, late arrivals wait on teamOpen
+            harnessing = true;
+            harnessAllowed.signalAll();
+
+            while (harnessedCount < numReindeer) {
+                harnessDone.await();
+            }
+
+            harnessing = false;
+
+            // At most one team's worth of late arrivals can join the next count
+            for (int i = 0; i < numReindeer; i++) {
+                teamOpen.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void releaseElves() throws InterruptedException {
+        lock.lock();
+        try {
+            consultedCount = 0;
+            groupsReleased++;
+
+            // Only the oldest formed group waits on this Condition
+            formedGroups.poll().signalAll();
+
+            while (consultedCount < elfGroupSize) {
+                consultDone.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean arriveReindeer(int id, GroupWork harness) throws InterruptedException {
+        lock.lock();
+        try {
+            // Wait until there's no active delivery and we can join the counting
+            while (harnessing || reindeerCount >= numReindeer) {
+                teamOpen.await();
+            }
+
+            reindeerCount++;
+            if (reindeerCount == numReindeer) {
+                log.event(NorthPoleEvent.REINDEER_LAST, id, 0);
+                reindeerReady = true;
+                santaWake.signal();
+            }
+
+            // Wait for Santa to signal harnessing can begin
+            while (!harnessing) {
+                harnessAllowed.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        harness.run();
+
+        lock.lock();
+        try {
+            harnessedCount++;
+            if (harnessedCount == numReindeer) {
+                harnessDone.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return true;
+    }
+
+    public boolean arriveElf(int id, GroupWork consultation) throws InterruptedException {
+        lock.lock();
+        try {
+            long group = groupsFormed;
+            CountedCondition allowed = consultAllowed;
+            waitingElves++;
+
+            if (waitingElves == elfGroupSize) {
+                log.event(NorthPoleEvent.ELF_GROUP_FORMED, id, elfGroupSize);
+                ProtocolEvents.elfGroupFormed(id, elfGroupSize);
+                waitingElves = 0;
+                groupsFormed++;
+                formedGroups.add(allowed);
+                consultAllowed = newCondition();
+                santaWake.signal();
+            } else {
+                log.event(NorthPoleEvent.ELF_WAITING, id, waitingElves);
+            }
+
+            // Wait for Santa to release this elf's group
+            while (groupsReleased <= group) {
+                allowed.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        consultation.run();
+
+        lock.lock();
+        try {
+            consultedCount++;
+            if (consultedCount == elfGroupSize) {
+                consultDone.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return true;
+    }
+}
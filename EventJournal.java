@@ -0,0 +1,226 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Santa Claus Problem - Binary Event Journal
+ *
+ * A compact record of a run for offline replay and analysis. The journal is
+ * a directory of fixed-size segment files (segment-00000.journal, ...), each
+ * memory-mapped while it is written. A segment starts with a header and is
+ * followed by fixed-width little-endian records:
+ *
+ *   header (16 bytes): magic "NPJ1", version (2), record size (2), segment index (4), unused (4)
+ *   record (24 bytes): time (8, simulated ms), actor id (4), number (4),
+ *                      actor type (1, NorthPoleEvent.Actor ordinal + 1), event code (1), unused (6)
+ *
+ * The mapped file is zero-filled, so a record whose actor type is 0 marks the
+ * end of the journal. When a record does not fit, the next segment is started.
+ *
+ * Writing happens on the RingBufferLog thread (run SantaClaus with
+ * --journal=<dir>). Reader streams the records back through primitive
+ * accessors without building any strings.
+ *
+ * Usage: java EventJournal <dir> [--text]
+ */
+public class EventJournal implements RingBufferLog.Writer {
+    public static final int MAGIC = 0x314A504E; // "NPJ1" in little-endian order
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 16;
+    public static final int RECORD_SIZE = 24;
+    private static final int DEFAULT_SEGMENT_SIZE = 16 << 20;
+
+    private final Path directory;
+    private final int segmentSize;
+    private int segmentIndex = -1;
+    private MappedByteBuffer segment;
+
+    public EventJournal(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    public EventJournal(Path directory, int segmentSize) throws IOException {
+        if (segmentSize < HEADER_SIZE + RECORD_SIZE) {
+            throw new IllegalArgumentException("Journal segment too small: " + segmentSize);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+
+        // Segments left by an earlier run would otherwise be read as a continuation
+        int stale = 0;
+        while (Files.deleteIfExists(segmentPath(directory, stale))) {
+            stale++;
+        }
+        nextSegment();
+    }
+
+    static Path segmentPath(Path directory, int index) {
+        return directory.resolve(String.format("segment-%05d.journal", index));
+    }
+
+    private void nextSegment() throws IOException {
+        if (segment != null) {
+            segment.force();
+        }
+        segmentIndex++;
+        Path path = segmentPath(directory, segmentIndex);
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            // The mapping stays valid after the channel is closed
+            segment = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        segment.order(ByteOrder.LITTLE_ENDIAN);
+        segment.putInt(MAGIC);
+        segment.putShort((short) VERSION);
+        segment.putShort((short) RECORD_SIZE);
+        segment.putInt(segmentIndex);
+        segment.putInt(0);
+    }
+
+    public void write(long time, NorthPoleEvent event, int actor, int value) throws IOException {
+        if (segment.remaining() < RECORD_SIZE) {
+            nextSegment();
+        }
+        int at = segment.position();
+        segment.putLong(at, time);
+        segment.putInt(at + 8, actor);
+        segment.putInt(at + 12, value);
+        segment.put(at + 16, (byte) (event.actor().ordinal() + 1));
+        segment.put(at + 17, (byte) event.ordinal());
+        segment.position(at + RECORD_SIZE);
+    }
+
+    public void flush() {
+        // Records are in the page cache as soon as they are written; force() only at segment ends
+    }
+
+    public void close() {
+        segment.force();
+    }
+
+    /**
+     * Streams the records of a journal directory, segment by segment.
+     * Each call to next() moves to the following record.
+     */
+    public static class Reader implements AutoCloseable {
+        private final Path directory;
+        private final NorthPoleEvent[] events = NorthPoleEvent.values();
+        private final NorthPoleEvent.Actor[] actorTypes = NorthPoleEvent.Actor.values();
+        private int segmentIndex = -1;
+        private MappedByteBuffer segment;
+        private int at;
+
+        public Reader(Path directory) {
+            this.directory = directory;
+        }
+
+        private boolean nextSegment() throws IOException {
+            Path path = segmentPath(directory, segmentIndex + 1);
+            if (!Files.exists(path)) {
+                return false;
+            }
+            segmentIndex++;
+            try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "r")) {
+                segment = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+            }
+            segment.order(ByteOrder.LITTLE_ENDIAN);
+            if (segment.limit() < HEADER_SIZE || segment.getInt(0) != MAGIC) {
+                throw new IOException("Not a journal segment: " + path);
+            }
+            if (segment.getShort(4) != VERSION || segment.getShort(6) != RECORD_SIZE) {
+                throw new IOException("Unsupported journal version or record size: " + path);
+            }
+            at = HEADER_SIZE - RECORD_SIZE;
+            return true;
+        }
+
+        public boolean next() throws IOException {
+            while (true) {
+                if (segment != null) {
+                    at += RECORD_SIZE;
+                    if (at + RECORD_SIZE <= segment.limit() && segment.get(at + 16) != 0) {
+                        return true;
+                    }
+                }
+                if (!nextSegment()) {
+                    return false;
+                }
+            }
+        }
+
+        public long time() {
+            return segment.getLong(at);
+        }
+
+        public int actor() {
+            return segment.getInt(at + 8);
+        }
+
+        public int value() {
+            return segment.getInt(at + 12);
+        }
+
+        public NorthPoleEvent.Actor actorType() {
+            return actorTypes[segment.get(at + 16) - 1];
+        }
+
+        public int eventCode() {
+            return segment.get(at + 17);
+        }
+
+        public NorthPoleEvent event() {
+            return events[eventCode()];
+        }
+
+        public void close() {
+            segment = null;
+        }
+    }
+
+    /**
+     * Summarize a journal, or print it back as text with --text
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: java EventJournal <dir> [--text]");
+            System.exit(1);
+        }
+        boolean text = args.length > 1 && args[1].equals("--text");
+
+        long[] counts = new long[NorthPoleEvent.values().length];
+        long records = 0;
+        long first = -1;
+        long last = -1;
+        StringBuilder line = new StringBuilder();
+        try (Reader reader = new Reader(Paths.get(args[0]))) {
+            while (reader.next()) {
+                records++;
+                counts[reader.eventCode()]++;
+                if (first < 0) {
+                    first = reader.time();
+                }
+                last = reader.time();
+                if (text) {
+                    line.setLength(0);
+                    line.append('[').append(reader.time()).append(" ms] ");
+                    reader.event().appendTo(line, reader.actor(), reader.value());
+                    System.out.println(line);
+                }
+            }
+        }
+
+        System.out.println("============================================================");
+        System.out.println("EVENT JOURNAL - " + args[0]);
+        System.out.println("============================================================");
+        System.out.println("  - Records: " + records + (records > 0 ? " (" + first + " ms to " + last + " ms)" : ""));
+        for (NorthPoleEvent event : NorthPoleEvent.values()) {
+            System.out.printf("  - %-24s %d%n", event + ":", counts[event.ordinal()]);
+        }
+        System.out.println("============================================================");
+    }
+}
@@ -0,0 +1,189 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Santa Claus Problem - Group Formation Benchmark
+ *
+ * Measures how many elf groups per second an engine can form and release:
+ * every elf arrives again as soon as its consultation is over, Santa releases
+ * each group as soon as it is ready, and toy work, consultations and Santa's
+ * own work take no time at all. What is left is the arrival path of
+ * arriveElf and the awaitSantaWork/releaseGroup(ELVES) cycle, so engines
+ * and monitor changes can be compared under identical conditions.
+ *
+ * Every combination of engine, number of elves and group size is measured
+ * the same way: fresh actor threads, a few warm-up iterations, then timed
+ * iterations of fixed length, reported as the mean with its standard
+ * deviation, min and max. Each elf is its own thread (an arriving elf blocks
+ * its thread until its group is consulted), so the number of elves is also
+ * the number of threads contending for the engine.
+ *
+ * monitor+queue is the monitor engine with --elves=queue. The plain monitor
+ * engine turns away elves that arrive while a group is being consulted, and
+ * with no toy work those elves retry at once and keep elfLock busy, so its
+ * numbers drop sharply as soon as there are more elves than one group.
+ *
+ * Usage: java GroupFormationBenchmark [--engine=<name>[,<name>...]] [--num-elves=<n>[,<n>...]]
+ *                                     [--group-size=<n>[,<n>...]] [--warmup=<iterations>]
+ *                                     [--iterations=<n>] [--time=<ms per iteration>]
+ */
+public class GroupFormationBenchmark {
+    private static final int NUM_REINDEER = 9;
+    private static final long STOP_TIMEOUT = 5000; // milliseconds
+
+    /**
+     * Santa's side: counts the groups he has released
+     */
+    private static class Santa implements Runnable {
+        private final NorthPoleCoordinator coordinator;
+        private volatile long groups = 0;
+
+        Santa(NorthPoleCoordinator coordinator) {
+            this.coordinator = coordinator;
+        }
+
+        public void run() {
+            try {
+                while (true) {
+                    coordinator.awaitSantaWork();
+                    coordinator.releaseGroup(NorthPoleCoordinator.Group.ELVES, () -> { });
+                    groups++;
+                }
+            } catch (InterruptedException e) {
+                // Benchmark finished
+            }
+        }
+    }
+
+    private static NorthPoleCoordinator coordinator(String engine, int numElves, int groupSize) {
+        boolean elfQueue = engine.equals("monitor+queue");
+        return NorthPoleCoordinator.create(elfQueue ? "monitor" : engine, NUM_REINDEER, numElves, groupSize, false,
+                elfQueue, false, new SimClock.WallClock(), NorthPoleLog.SILENT);
+    }
+
+    private static Thread start(Runnable actor) {
+        Thread thread = new Thread(actor);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Groups per second for each timed iteration
+     */
+    static double[] measure(String engine, int numElves, int groupSize, int warmup, int iterations,
+                            long iterationTime) throws InterruptedException {
+        NorthPoleCoordinator coordinator = coordinator(engine, numElves, groupSize);
+        Santa santa = new Santa(coordinator);
+        List<Thread> threads = new ArrayList<>();
+        threads.add(start(santa));
+        for (int i = 0; i < numElves; i++) {
+            final int id = i + 1;
+            threads.add(start(() -> {
+                try {
+                    // No toy work: ask for help again straight away
+                    while (!Thread.interrupted()) {
+                        coordinator.arriveElf(id, () -> { });
+                    }
+                } catch (InterruptedException e) {
+                    // Benchmark finished
+                }
+            }));
+        }
+
+        double[] rates = new double[iterations];
+        for (int i = 0; i < warmup + iterations; i++) {
+            long groups = santa.groups;
+            long start = System.nanoTime();
+            Thread.sleep(iterationTime);
+            long elapsed = System.nanoTime() - start;
+            if (i >= warmup) {
+                rates[i - warmup] = (santa.groups - groups) * 1e9 / elapsed;
+            }
+        }
+
+        for (Thread t : threads) {
+            t.interrupt();
+        }
+        for (Thread t : threads) {
+            t.join(STOP_TIMEOUT);
+            if (t.isAlive()) {
+                System.err.println("  warning: " + engine + " actor thread did not stop, later results may suffer");
+                break;
+            }
+        }
+        return rates;
+    }
+
+    private static int[] parseInts(String list) {
+        String[] parts = list.split(",");
+        int[] values = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = Integer.parseInt(parts[i]);
+        }
+        return values;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        String[] engines = {"monitor", "monitor+queue", "condition", "lockfree", "phaser"};
+        int[] elfCounts = {10, 100};
+        int[] groupSizes = {3};
+        int warmup = 3;
+        int iterations = 5;
+        long iterationTime = 500;
+        for (String arg : args) {
+            if (arg.startsWith("--engine=")) {
+                engines = arg.substring("--engine=".length()).split(",");
+            } else if (arg.startsWith("--num-elves=")) {
+                elfCounts = parseInts(arg.substring("--num-elves=".length()));
+            } else if (arg.startsWith("--group-size=")) {
+                groupSizes = parseInts(arg.substring("--group-size=".length()));
+            } else if (arg.startsWith("--warmup=")) {
+                warmup = Integer.parseInt(arg.substring("--warmup=".length()));
+            } else if (arg.startsWith("--iterations=")) {
+                iterations = Integer.parseInt(arg.substring("--iterations=".length()));
+            } else if (arg.startsWith("--time=")) {
+                iterationTime = Long.parseLong(arg.substring("--time=".length()));
+            } else {
+                System.err.println("Unknown option: " + arg);
+                System.exit(1);
+            }
+        }
+
+        System.out.println("============================================================");
+        System.out.println("GROUP FORMATION BENCHMARK - " + warmup + " warm-up + " + iterations + " x "
+                + iterationTime + " ms iterations, no sleeps");
+        System.out.println("============================================================");
+        System.out.printf("  %-14s %6s %5s %14s %12s %12s %12s%n",
+                "engine", "elves", "group", "groups/s", "sd", "min", "max");
+
+        for (int groupSize : groupSizes) {
+            for (int numElves : elfCounts) {
+                if (numElves < groupSize) {
+                    System.err.println("Skipping " + numElves + " elves: fewer than a group of " + groupSize);
+                    continue;
+                }
+                for (String engine : engines) {
+                    double[] rates = measure(engine, numElves, groupSize, warmup, iterations, iterationTime);
+                    double sum = 0;
+                    double min = Double.MAX_VALUE;
+                    double max = 0;
+                    for (double rate : rates) {
+                        sum += rate;
+                        min = Math.min(min, rate);
+                        max = Math.max(max, rate);
+                    }
+                    double mean = sum / rates.length;
+                    double squares = 0;
+                    for (double rate : rates) {
+                        squares += (rate - mean) * (rate - mean);
+                    }
+                    double sd = rates.length > 1 ? Math.sqrt(squares / (rates.length - 1)) : 0;
+                    System.out.printf("  %-14s %6d %5d %14.0f %12.0f %12.0f %12.0f%n",
+                            engine, numElves, groupSize, mean, sd, min, max);
+                }
+            }
+        }
+        System.out.println("============================================================");
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ * Santa Claus Problem - Harnessing Benchmark
+ *
+ * Measures the time of one delivery cycle: the last reindeer arrives, Santa
+ * releases the team and every reindeer spends 100 ms getting harnessed.
+ * Vacations and Santa's delivery preparation are left out, so the numbers
+ * only show how the harness steps of one team overlap.
+ *
+ * With the monitor engine in serial mode the nine harness steps run one
+ * after another inside reindeerLock (at least 900 ms per cycle); in parallel
+ * mode and in the other engines they overlap (about 100 ms per cycle).
+ *
+ * Usage: java HarnessBenchmark [cycles]
+ */
+public class HarnessBenchmark {
+    private static final int NUM_REINDEER = 9;
+    private static final int HARNESS_TIME = 100; // milliseconds
+    private static final int WARMUP_CYCLES = 2;
+
+    private static double measure(String engine, boolean parallelHarness, int cycles) throws InterruptedException {
+        NorthPoleCoordinator coordinator =
+                NorthPoleCoordinator.create(engine, NUM_REINDEER, 0, 3, parallelHarness, false, false,
+                        new SimClock.WallClock(), NorthPoleLog.SILENT);
+
+        Thread[] reindeer = new Thread[NUM_REINDEER];
+        for (int i = 0; i < NUM_REINDEER; i++) {
+            final int id = i + 1;
+            reindeer[i] = new Thread(() -> {
+                try {
+                    // No vacation: come straight back for the next delivery
+                    while (true) {
+                        coordinator.arriveReindeer(id, () -> Thread.sleep(HARNESS_TIME));
+                    }
+                } catch (InterruptedException e) {
+                    // Benchmark finished
+                }
+            });
+            reindeer[i].setDaemon(true);
+            reindeer[i].start();
+        }
+
+        long start = 0;
+        for (int cycle = 0; cycle < WARMUP_CYCLES + cycles; cycle++) {
+            if (cycle == WARMUP_CYCLES) {
+                start = System.nanoTime();
+            }
+            coordinator.awaitSantaWork();
+            coordinator.releaseGroup(NorthPoleCoordinator.Group.REINDEER, () -> { });
+        }
+        long elapsed = System.nanoTime() - start;
+
+        for (Thread t : reindeer) {
+            t.interrupt();
+        }
+        return elapsed / 1e6 / cycles;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int cycles = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+
+        System.out.println("============================================================");
+        System.out.println("HARNESS BENCHMARK - " + NUM_REINDEER + " reindeer, " + HARNESS_TIME
+                + " ms per harness, " + cycles + " cycles");
+        System.out.println("============================================================");
+
+        double serial = measure("monitor", false, cycles);
+        System.out.printf("  monitor (serial harnessing):   %8.1f ms per delivery cycle%n", serial);
+        double parallel = measure("monitor", true, cycles);
+        System.out.printf("  monitor (parallel harnessing): %8.1f ms per delivery cycle%n", parallel);
+        for (String engine : new String[] {"condition", "lockfree", "phaser"}) {
+            System.out.printf("  %-30s %8.1f ms per delivery cycle%n", engine + ":", measure(engine, true, cycles));
+        }
+
+        System.out.println("============================================================");
+        System.out.printf("Parallel harnessing speedup (monitor): %.1fx%n", serial / parallel);
+        System.out.println("============================================================");
+    }
+}
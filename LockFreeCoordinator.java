@@ -0,0 +1,284 @@
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Santa Claus Problem - Lock-Free Coordination Engine
+ *
+ * Every counter the protocol moves forward lives in one AtomicLong and is
+ * advanced with compare-and-set, so arrivals never take a lock:
+ *
+ *   bits  0-13  R - reindeer that joined the current team
+ *   bit     14  H - Santa is harnessing the team
+ *   bits 15-28  D - members of the released group that are done
+ *   bits 29-40  W - elves in the group that is still forming
+ *   bits 41-63  F - elf groups formed so far (wraps around)
+ *
+ * Santa is the only writer of releasedGroups. Threads park (through the
+ * clock, see SimClock.park) only when they really must block, and register
+ * themselves in a slot so the thread that unblocks them can unpark exactly
+ * them.
+ *
+ * santaSpins lets Santa spin (Thread.onSpinWait) for that many checks of the
+ * state before parking, trading a busy core for a faster wake-up when the
+ * next group is about to form (see WakeupLatencyBenchmark). By default he
+ * parks straight away.
+ */
+public class LockFreeCoordinator implements NorthPoleCoordinator {
+    private static final int R_SHIFT = 0;
+    private static final int H_SHIFT = 14;
+    private static final int D_SHIFT = 15;
+    private static final int W_SHIFT = 29;
+    private static final int F_SHIFT = 41;
+
+    private static final long R_MASK = (1L << 14) - 1;
+    private static final long D_MASK = (1L << 14) - 1;
+    private static final long W_MASK = (1L << 12) - 1;
+    private static final long F_MASK = (1L << 23) - 1;
+    private static final long HARNESSING = 1L << H_SHIFT;
+
+    private final int numReindeer;
+    private final int elfGroupSize;
+    private final SimClock clock;
+    private final NorthPoleLog log;
+    private final int santaSpins;
+
+    private final AtomicLong state = new AtomicLong();
+    private volatile long releasedGroups = 0;
+    private volatile Thread santa;
+
+    // Parking slots: one per team position, and one per elf position in a ring of groups
+    private final AtomicReferenceArray<Thread> reindeerSlots;
+    private final AtomicReferenceArray<Thread> elfSlots;
+    private final long groupRingMask;
+    private final ConcurrentLinkedQueue<Thread> lateReindeer = new ConcurrentLinkedQueue<>();
+
+    public LockFreeCoordinator(int numReindeer, int numElves, int elfGroupSize, SimClock clock,
+                               NorthPoleLog log) {
+        this(numReindeer, numElves, elfGroupSize, clock, log, 0);
+    }
+
+    public LockFreeCoordinator(int numReindeer, int numElves, int elfGroupSize, SimClock clock,
+                               NorthPoleLog log, int santaSpins) {
+        if (numReindeer > R_MASK || elfGroupSize > W_MASK) {
+            throw new IllegalArgumentException("Team or group size too large for the lock-free engine");
+        }
+        this.numReindeer = numReindeer;
+        this.elfGroupSize = elfGroupSize;
+        this.clock = clock;
+        this.log = log;
+        this.santaSpins = santaSpins;
+
+        // Every waiting elf belongs to one of at most numElves / elfGroupSize + 1 groups
+        int groups = Integer.highestOneBit(numElves / elfGroupSize + 1) << 1;
+        if (groups > (F_MASK + 1) / 2) {
+            throw new IllegalArgumentException("Too many elves for the lock-free engine");
+        }
+        this.groupRingMask = groups - 1;
+        this.reindeerSlots = new AtomicReferenceArray<>(numReindeer);
+        this.elfSlots = new AtomicReferenceArray<>(groups * elfGroupSize);
+    }
+
+    public String description() {
+        return "Lock-free CAS state machine (AtomicLong + LockSupport)"
+                + (santaSpins > 0 ? ", Santa spins " + santaSpins + " times before parking" : "");
+    }
+
+    private static int field(long s, int shift, long mask) {
+        return (int) ((s >>> shift) & mask);
+    }
+
+    private static long pendingGroups(long s, long released) {
+        return (field(s, F_SHIFT, F_MASK) - released) & F_MASK;
+    }
+
+    private boolean isReleased(long group) {
+        long ahead = (releasedGroups - group) & F_MASK;
+        return ahead != 0 && ahead <= F_MASK / 2;
+    }
+
+    private int elfSlot(long group, int position) {
+        return (int) (group & groupRingMask) * elfGroupSize + position;
+    }
+
+    private void park(Object blocker) throws InterruptedException {
+        clock.park(blocker);
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+
+    private void wakeSanta() {
+        Thread s = santa;
+        if (s != null) {
+            clock.unpark(s);
+        }
+    }
+
+    public Group awaitSantaWork() throws InterruptedException {
+        santa = Thread.currentThread();
+        int spins = santaSpins;
+        while (true) {
+            long s = state.get();
+            // Reindeer have priority
+            if ((s & HARNESSING) == 0 && field(s, R_SHIFT, R_MASK) == numReindeer) {
+                return Group.REINDEER;
+            }
+            if (pendingGroups(s, releasedGroups) > 0) {
+                return Group.ELVES;
+            }
+            if (spins > 0) {
+                spins--;
+                Thread.onSpinWait();
+                continue;
+            }
+            park(this);
+        }
+    }
+
+    public void releaseGroup(Group group, GroupWork santaWork) throws InterruptedException {
+        if (group == Group.REINDEER) {
+            releaseReindeer();
+        } else {
+            releaseElves();
+        }
+        santaWork.run();
+    }
+
+    private void releaseReindeer() throws InterruptedException {
+        // Start harnessing: the count restarts, late arrivals stay out until the flag clears
+        long s;
+        do {
+            s = state.get();
+        } while (!state.compareAndSet(s, (s & ~(R_MASK << R_SHIFT) & ~(D_MASK << D_SHIFT)) | HARNESSING));
+
+        for (int i = 0; i < numReindeer; i++) {
+            Thread t = reindeerSlots.get(i);
+            if (t != null) {
+                clock.unpark(t);
+            }
+        }
+
+        while (field(state.get(), D_SHIFT, D_MASK) < numReindeer) {
+            park(this);
+        }
+
+        do {
+            s = state.get();
+        } while (!state.compareAndSet(s, s & ~HARNESSING));
+
+        // Late arrivals retry joining the next team
+        Thread t;
+        while ((t = lateReindeer.poll()) != null) {
+            clock.unpark(t);
+        }
+    }
+
+    private void releaseElves() throws InterruptedException {
+        long s;
+        do {
+            s = state.get();
+        } while (!state.compareAndSet(s, s & ~(D_MASK << D_SHIFT)));
+
+        long group = releasedGroups;
+        releasedGroups = group + 1;
+
+        for (int i = 0; i < elfGroupSize; i++) {
+            Thread t = elfSlots.get(elfSlot(group, i));
+            if (t != null) {
+                clock.unpark(t);
+            }
+        }
+
+        while (field(state.get(), D_SHIFT, D_MASK) < elfGroupSize) {
+            park(this);
+        }
+    }
+
+    /**
+     * Report one member of the released group as done and wake Santa if it was the last one
+     */
+    private void memberDone(int groupSize) {
+        long s = state.addAndGet(1L << D_SHIFT);
+        if (field(s, D_SHIFT, D_MASK) == groupSize) {
+            wakeSanta();
+        }
+    }
+
+    public boolean arriveReindeer(int id, GroupWork harness) throws InterruptedException {
+        Thread self = Thread.currentThread();
+        long s;
+        while (true) {
+            s = state.get();
+            if ((s & HARNESSING) != 0 || field(s, R_SHIFT, R_MASK) >= numReindeer) {
+                // Register before re-checking so Santa's drain cannot miss us
+                lateReindeer.add(self);
+                long again = state.get();
+                if ((again & HARNESSING) != 0 || field(again, R_SHIFT, R_MASK) >= numReindeer) {
+                    park(this);
+                }
+                continue;
+            }
+            if (state.compareAndSet(s, s + (1L << R_SHIFT))) {
+                break;
+            }
+        }
+
+        int position = field(s, R_SHIFT, R_MASK);
+        reindeerSlots.set(position, self);
+
+        if (position + 1 == numReindeer) {
+            log.event(NorthPoleEvent.REINDEER_LAST, id, 0);
+            wakeSanta();
+        }
+
+        // Wait for Santa to signal harnessing can begin
+        while ((state.get() & HARNESSING) == 0) {
+            park(this);
+        }
+
+        harness.run();
+        memberDone(numReindeer);
+        return true;
+    }
+
+    public boolean arriveElf(int id, GroupWork consultation) throws InterruptedException {
+        long s;
+        long next;
+        while (true) {
+            s = state.get();
+            int waiting = field(s, W_SHIFT, W_MASK) + 1;
+            if (waiting == elfGroupSize) {
+                // Complete the group: W back to zero, F one further
+                long formed = (field(s, F_SHIFT, F_MASK) + 1) & F_MASK;
+                next = (s & ~(W_MASK << W_SHIFT) & ~(F_MASK << F_SHIFT)) | (formed << F_SHIFT);
+            } else {
+                next = s + (1L << W_SHIFT);
+            }
+            if (state.compareAndSet(s, next)) {
+                break;
+            }
+        }
+
+        long group = field(s, F_SHIFT, F_MASK);
+        int position = field(s, W_SHIFT, W_MASK);
+        elfSlots.set(elfSlot(group, position), Thread.currentThread());
+
+        if (position + 1 == elfGroupSize) {
+            log.event(NorthPoleEvent.ELF_GROUP_FORMED, id, elfGroupSize);
+            ProtocolEvents.elfGroupFormed(id, elfGroupSize);
+            wakeSanta();
+        } else {
+            log.event(NorthPoleEvent.ELF_WAITING, id, position + 1);
+        }
+
+        // Wait for Santa to release this elf's group
+        while (!isReleased(group)) {
+            park(this);
+        }
+
+        consultation.run();
+        memberDone(elfGroupSize);
+        return true;
+    }
+}
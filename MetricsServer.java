@@ -0,0 +1,153 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Santa Claus Problem - Prometheus Metrics Endpoint
+ *
+ * An embedded HTTP server on the loopback interface, started by SantaClaus
+ * with --metrics-port=<port>:
+ *
+ * - /metrics  the running simulation in Prometheus text format: deliveries and
+ *             consultations, waiting elves and reindeer, Santa's state, the
+ *             elf/reindeer wait and Santa sleep histograms (simulated seconds)
+ *             and the number of live actor and JVM threads
+ * - /healthz  200 "ok" while Santa's thread is alive, 503 otherwise
+ *
+ * A scrape only reads NorthPoleCounters (LongAdders and a volatile) and
+ * LatencyHistogram snapshots (atomic reads), so it never takes a lock of the
+ * coordination engine and cannot hold up the actors.
+ */
+public class MetricsServer {
+    // Histogram bucket bounds in seconds
+    private static final double[] BOUNDS = {0.001, 0.005, 0.01, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60};
+
+    private final SantaClaus northPole;
+    private final HttpServer server;
+
+    public MetricsServer(SantaClaus northPole, int port) throws IOException {
+        this.northPole = northPole;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", exchange -> respond(exchange, 200,
+                "text/plain; version=0.0.4; charset=utf-8", metrics()));
+        server.createContext("/healthz", exchange -> {
+            boolean healthy = santaAlive();
+            respond(exchange, healthy ? 200 : 503, "text/plain; charset=utf-8", healthy ? "ok\n" : "santa stopped\n");
+        });
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    /**
+     * The port actually bound, useful with port 0
+     */
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    private boolean santaAlive() {
+        List<Thread> threads = northPole.threads();
+        return !threads.isEmpty() && threads.get(0).isAlive();
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, String body)
+            throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    String metrics() {
+        NorthPoleCounters counters = northPole.counters();
+        StringBuilder out = new StringBuilder(4096);
+
+        counter(out, "northpole_deliveries_total", "Deliveries Santa has prepared", counters.getDeliveries());
+        counter(out, "northpole_elf_consultations_total", "Elf groups Santa has consulted",
+                counters.getElfConsultations());
+        gauge(out, "northpole_waiting_elves", "Elves waiting for a consultation", counters.getWaitingElves());
+        gauge(out, "northpole_waiting_reindeer", "Reindeer back from vacation and not harnessed yet",
+                counters.getReindeerCount());
+        gauge(out, "northpole_simulated_seconds", "Simulated time since the actors were started",
+                counters.getSimulatedSeconds());
+
+        out.append("# HELP northpole_santa_state What Santa is doing (1 for the current state)\n");
+        out.append("# TYPE northpole_santa_state gauge\n");
+        NorthPoleCounters.SantaState current = counters.santaState();
+        for (NorthPoleCounters.SantaState state : NorthPoleCounters.SantaState.values()) {
+            out.append("northpole_santa_state{state=\"").append(state.name().toLowerCase()).append("\"} ")
+                    .append(state == current ? 1 : 0).append('\n');
+        }
+
+        histogram(out, "northpole_elf_wait_seconds", "Simulated time from asking for help to consultation",
+                northPole.elfWaits().snapshot());
+        histogram(out, "northpole_reindeer_wait_seconds", "Simulated time from returning to being harnessed",
+                northPole.reindeerWaits().snapshot());
+        histogram(out, "northpole_santa_sleep_seconds", "Simulated time Santa sleeps between jobs",
+                northPole.santaSleeps().snapshot());
+
+        List<Thread> threads = northPole.threads();
+        int herd = northPole.herdSize();
+        int santa = 0;
+        int reindeer = 0;
+        int elves = 0;
+        for (int i = 0; i < threads.size(); i++) {
+            if (!threads.get(i).isAlive()) {
+                continue;
+            }
+            if (i == 0) {
+                santa++;
+            } else if (i <= herd) {
+                reindeer++;
+            } else {
+                elves++;
+            }
+        }
+        out.append("# HELP northpole_actor_threads Live actor threads\n");
+        out.append("# TYPE northpole_actor_threads gauge\n");
+        out.append("northpole_actor_threads{actor=\"santa\"} ").append(santa).append('\n');
+        out.append("northpole_actor_threads{actor=\"reindeer\"} ").append(reindeer).append('\n');
+        out.append("northpole_actor_threads{actor=\"elf\"} ").append(elves).append('\n');
+        gauge(out, "jvm_threads_live", "Live platform threads in the JVM",
+                ManagementFactory.getThreadMXBean().getThreadCount());
+        return out.toString();
+    }
+
+    private static void counter(StringBuilder out, String name, String help, long value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" counter\n");
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void gauge(StringBuilder out, String name, String help, long value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" gauge\n");
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void histogram(StringBuilder out, String name, String help, LatencyHistogram.Snapshot snapshot) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" histogram\n");
+        for (double bound : BOUNDS) {
+            out.append(name).append("_bucket{le=\"").append(bound).append("\"} ")
+                    .append(snapshot.countAtOrBelow((long) (bound * 1e9))).append('\n');
+        }
+        out.append(name).append("_bucket{le=\"+Inf\"} ").append(snapshot.count()).append('\n');
+        out.append(name).append("_sum ").append(snapshot.sum() / 1e9).append('\n');
+        out.append(name).append("_count ").append(snapshot.count()).append('\n');
+    }
+}
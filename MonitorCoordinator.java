@@ -0,0 +1,423 @@
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Santa Claus Problem - Monitor Coordination Engine
+ *
+ * The original protocol built from Java monitors (synchronized/wait/notify).
+ *
+ * Key synchronization objects:
+ * 1. santaLock - Controls Santa's wake/sleep cycle
+ * 2. reindeerLock - Protects reindeer counter and coordinates harness operations
+ * 3. elfLock - Protects elf counters and coordinates consultations
+ *
+ * With parallelHarness the reindeer leave reindeerLock while getting
+ * harnessed and only come back to count themselves done, so the team is
+ * harnessed concurrently instead of one reindeer after another.
+ *
+ * Santa's delivery preparation runs after reindeerLock is released.
+ *
+ * With elfQueue an elf never enters elfLock to register: it appends itself
+ * to a concurrent queue and parks. Santa takes elves off the queue one group
+ * at a time and only uses elfLock to wait for the group to finish, so elves
+ * keep queueing while a consultation is in progress.
+ *
+ * Every critical section is a method run by lock.locked(section), which
+ * enters the monitor and does the accounting around it. With profileLocks every
+ * acquisition and wait point of the three locks is timed (see
+ * ProfiledMonitor) to show which critical section limits throughput as the
+ * number of elves grows.
+ */
+public class MonitorCoordinator implements NorthPoleCoordinator {
+    private final int numReindeer;
+    private final int elfGroupSize;
+    private final boolean parallelHarness;
+    private final boolean elfQueue;
+    private final SimClock clock;
+    private final NorthPoleLog log;
+
+    // Monitor locks
+    private final ProfiledMonitor santaLock;
+    private final ProfiledMonitor reindeerLock;
+    private final ProfiledMonitor elfLock;
+
+    // Counters
+    private int reindeerCount = 0;
+    private int elfCount = 0;
+    private int waitingElves = 0;
+
+    // Flags to indicate which group is ready
+    private boolean reindeerReady = false;
+    private boolean elvesReady = false;
+
+    // Flags to control when workers can proceed
+    private boolean reindeerCanHarness = false;
+    private boolean elvesCanConsult = false;
+    private int harnessedCount = 0;
+    private int consultedCount = 0;
+
+    // Elf queue mode: elves queued so far, and taken off the queue by Santa
+    private final ConcurrentLinkedQueue<QueuedElf> queuedElves = new ConcurrentLinkedQueue<>();
+    private final AtomicLong elvesQueued = new AtomicLong();
+    private long elvesTaken = 0;
+
+    // The critical sections below, created once so that entering a lock allocates nothing
+    private final ProfiledMonitor.Section waitForGroup = this::waitForGroup;
+    private final ProfiledMonitor.Decision checkReindeer = this::checkReindeer;
+    private final ProfiledMonitor.Decision checkElves = this::checkElves;
+    private final ProfiledMonitor.Section reindeerAreBack = this::reindeerAreBack;
+    private final ProfiledMonitor.Section elvesNeedHelp = this::elvesNeedHelp;
+    private final ProfiledMonitor.Section harnessTeam = this::harnessTeam;
+    private final ProfiledMonitor.Section consultGroup = this::consultGroup;
+    private final ProfiledMonitor.Section resetConsulted = this::resetConsulted;
+    private final ProfiledMonitor.Section takeQueuedGroup = this::takeQueuedGroup;
+    private final ProfiledMonitor.Section waitForConsulted = this::waitForConsulted;
+    private final ProfiledMonitor.Decision joinTeam = this::joinTeam;
+    private final ProfiledMonitor.Section harnessed = this::harnessed;
+    private final ProfiledMonitor.Decision joinGroup = this::joinGroup;
+    private final ProfiledMonitor.Section consulted = this::consulted;
+    private final ProfiledMonitor.Section queuedElfConsulted = this::queuedElfConsulted;
+
+    /**
+     * An elf waiting in the queue until Santa takes its group
+     */
+    private static class QueuedElf {
+        final Thread thread = Thread.currentThread();
+        volatile boolean released = false;
+    }
+
+    public MonitorCoordinator(int numReindeer, int elfGroupSize, boolean parallelHarness, boolean elfQueue,
+                              SimClock clock, NorthPoleLog log, boolean profileLocks) {
+        this.numReindeer = numReindeer;
+        this.elfGroupSize = elfGroupSize;
+        this.parallelHarness = parallelHarness;
+        this.elfQueue = elfQueue;
+        this.clock = clock;
+        this.log = log;
+        this.santaLock = new ProfiledMonitor("santaLock", profileLocks, clock);
+        this.reindeerLock = new ProfiledMonitor("reindeerLock", profileLocks, clock);
+        this.elfLock = new ProfiledMonitor("elfLock", profileLocks, clock);
+    }
+
+    /**
+     * Contention counters of santaLock, reindeerLock and elfLock (all zero unless profileLocks)
+     */
+    public List<ProfiledMonitor.Snapshot> lockProfile() {
+        return List.of(santaLock.snapshot(), reindeerLock.snapshot(), elfLock.snapshot());
+    }
+
+    public String description() {
+        return "Java Monitors (synchronized/wait/notify)"
+                + (parallelHarness ? ", parallel harnessing" : "")
+                + (elfQueue ? ", queued elves" : "");
+    }
+
+    public Group awaitSantaWork() throws InterruptedException {
+        while (true) {
+            santaLock.locked(waitForGroup);
+
+            // Check if reindeer are ready (priority) - check outside santaLock
+            if (reindeerLock.decide(checkReindeer)) {
+                return Group.REINDEER;
+            }
+
+            // If no reindeer, check elves
+            if (elfLock.decide(checkElves)) {
+                return Group.ELVES;
+            }
+        }
+    }
+
+    /**
+     * santaLock: wait until either reindeer or elves are ready
+     */
+    private void waitForGroup(int id, GroupWork work) throws InterruptedException {
+        while (!reindeerReady && !elvesReady) {
+            santaLock.await();
+        }
+    }
+
+    /**
+     * reindeerLock: whether a sleigh team is ready
+     */
+    private boolean checkReindeer(int id, GroupWork work) {
+        return reindeerReady;
+    }
+
+    /**
+     * elfLock: whether an elf group is ready
+     */
+    private boolean checkElves(int id, GroupWork work) {
+        return elvesReady;
+    }
+
+    /**
+     * santaLock: the last reindeer wakes Santa
+     */
+    private void reindeerAreBack(int id, GroupWork work) {
+        reindeerReady = true;
+        santaLock.signal();
+    }
+
+    /**
+     * santaLock: the last elf of a group wakes Santa
+     */
+    private void elvesNeedHelp(int id, GroupWork work) {
+        elvesReady = true;
+        santaLock.signal();
+    }
+
+    public void releaseGroup(Group group, GroupWork santaWork) throws InterruptedException {
+        if (group == Group.REINDEER) {
+            reindeerLock.locked(harnessTeam);
+
+            // Prepare the delivery without holding reindeerLock, so reindeer returning
+            // meanwhile can start counting for the next round instead of blocking on entry
+            santaWork.run();
+        } else if (elfQueue) {
+            releaseQueuedElves(santaWork);
+        } else {
+            elfLock.locked(consultGroup, 0, santaWork);
+        }
+    }
+
+    /**
+     * reindeerLock: Santa lets the team harness and waits until it is done
+     */
+    private void harnessTeam(int id, GroupWork work) throws InterruptedException {
+        // Reset flags and counters
+        reindeerReady = false;
+        reindeerCount = 0;
+        harnessedCount = 0;
+
+        // Signal all reindeer to proceed with harnessing
+        reindeerCanHarness = true;
+        reindeerLock.signalAll();
+
+        // Wait for all reindeer to finish harnessing
+        while (harnessedCount < numReindeer) {
+            reindeerLock.await();
+        }
+
+        reindeerCanHarness = false;
+
+        // Wake up any reindeer that returned late and are waiting to start counting again
+        reindeerLock.signalAll();
+    }
+
+    /**
+     * elfLock: Santa consults the group, then finishes his own work still holding elfLock
+     */
+    private void consultGroup(int id, GroupWork santaWork) throws InterruptedException {
+        // Reset flags and counters - but keep elfCount until after signaling
+        elvesReady = false;
+        consultedCount = 0;
+
+        // Signal the elves to proceed with consultation
+        elvesCanConsult = true;
+        elfLock.signalAll();
+
+        // Wait for all elves in the group to finish consultation
+        while (consultedCount < elfGroupSize) {
+            elfLock.await();
+        }
+
+        // Now reset elfCount after all elves are done
+        elfCount = 0;
+        elvesCanConsult = false;
+
+        elfLock.holding(santaWork);
+    }
+
+    private void releaseQueuedElves(GroupWork santaWork) throws InterruptedException {
+        elfLock.locked(resetConsulted);
+
+        // The group's elves were queued before they were counted, so all of them are there
+        for (int i = 0; i < elfGroupSize; i++) {
+            QueuedElf elf = queuedElves.poll();
+            elf.released = true;
+            clock.unpark(elf.thread);
+        }
+
+        santaLock.locked(takeQueuedGroup);
+        elfLock.locked(waitForConsulted);
+
+        santaWork.run();
+    }
+
+    /**
+     * elfLock: nobody in the next group has been consulted yet
+     */
+    private void resetConsulted(int id, GroupWork work) {
+        consultedCount = 0;
+    }
+
+    /**
+     * santaLock: a group is off the queue, Santa stays ready if another one is complete
+     */
+    private void takeQueuedGroup(int id, GroupWork work) {
+        elvesTaken += elfGroupSize;
+        elvesReady = elvesQueued.get() - elvesTaken >= elfGroupSize;
+    }
+
+    /**
+     * elfLock: wait for all elves in the group to finish consultation
+     */
+    private void waitForConsulted(int id, GroupWork work) throws InterruptedException {
+        while (consultedCount < elfGroupSize) {
+            elfLock.await();
+        }
+    }
+
+    public boolean arriveReindeer(int id, GroupWork harness) throws InterruptedException {
+        boolean isPartOfGroup = reindeerLock.decide(joinTeam, id, harness);
+
+        // Harness outside the lock, only the completion count goes back inside
+        if (isPartOfGroup && parallelHarness) {
+            harness.run();
+            reindeerLock.locked(harnessed);
+        }
+        return isPartOfGroup;
+    }
+
+    /**
+     * reindeerLock: count this reindeer in, wait for Santa and, unless
+     * harnessing in parallel, get harnessed
+     */
+    private boolean joinTeam(int id, GroupWork harness) throws InterruptedException {
+        // Wait until there's no active delivery and we can join the counting
+        while (reindeerCanHarness || reindeerCount >= numReindeer) {
+            reindeerLock.await();
+        }
+
+        reindeerCount++;
+        boolean isPartOfGroup = (reindeerCount <= numReindeer);
+
+        if (reindeerCount == numReindeer) {
+            log.event(NorthPoleEvent.REINDEER_LAST, id, 0);
+            santaLock.locked(reindeerAreBack);
+        }
+
+        // Only the first reindeer up to numReindeer wait for Santa
+        if (isPartOfGroup) {
+            // Wait for Santa to signal harnessing can begin
+            while (!reindeerCanHarness) {
+                reindeerLock.await();
+            }
+
+            if (!parallelHarness) {
+                reindeerLock.holding(harness);
+
+                harnessedCount++;
+                if (harnessedCount == numReindeer) {
+                    reindeerLock.signal(); // Wake Santa
+                }
+            }
+        }
+        // If not part of group, just continue and go back on vacation
+        return isPartOfGroup;
+    }
+
+    /**
+     * reindeerLock: a reindeer harnessed in parallel counts itself done
+     */
+    private void harnessed(int id, GroupWork work) {
+        harnessedCount++;
+        if (harnessedCount == numReindeer) {
+            // Late arrivals wait on the same monitor, so make sure Santa hears it
+            reindeerLock.signalAll();
+        }
+    }
+
+    public boolean arriveElf(int id, GroupWork consultation) throws InterruptedException {
+        if (elfQueue) {
+            return arriveQueuedElf(id, consultation);
+        }
+
+        boolean isInGroup = elfLock.decide(joinGroup, id, consultation);
+
+        // Perform consultation outside the lock if part of group
+        if (isInGroup) {
+            consultation.run();
+            elfLock.locked(consulted);
+        }
+        return isInGroup;
+    }
+
+    /**
+     * elfLock: count this elf in, wake Santa if it completes a group, and
+     * wait to find out whether it is in the group Santa consults
+     */
+    private boolean joinGroup(int id, GroupWork consultation) throws InterruptedException {
+        waitingElves++;
+
+        if (waitingElves == elfGroupSize) {
+            log.event(NorthPoleEvent.ELF_GROUP_FORMED, id, elfGroupSize);
+            ProtocolEvents.elfGroupFormed(id, elfGroupSize);
+            elfCount = elfGroupSize;
+            waitingElves = 0;
+            santaLock.locked(elvesNeedHelp);
+        } else {
+            log.event(NorthPoleEvent.ELF_WAITING, id, waitingElves);
+        }
+
+        // Wait for Santa to signal consultation can begin
+        while (elfCount > 0 && !elvesCanConsult) {
+            elfLock.await();
+        }
+
+        // Check if this elf is part of the group being serviced
+        if (elvesCanConsult && consultedCount < elfGroupSize) {
+            consultedCount++; // Reserve spot
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * elfLock: the elves reserved their spots, so the count is already complete
+     */
+    private void consulted(int id, GroupWork work) {
+        if (consultedCount == elfGroupSize) {
+            elfLock.signal(); // Wake Santa
+        }
+    }
+
+    private boolean arriveQueuedElf(int id, GroupWork consultation) throws InterruptedException {
+        QueuedElf elf = new QueuedElf();
+        queuedElves.add(elf);
+        long queued = elvesQueued.incrementAndGet();
+        int waiting = (int) ((queued - 1) % elfGroupSize) + 1;
+
+        if (waiting == elfGroupSize) {
+            log.event(NorthPoleEvent.ELF_GROUP_FORMED, id, elfGroupSize);
+            ProtocolEvents.elfGroupFormed(id, elfGroupSize);
+            santaLock.locked(elvesNeedHelp);
+        } else {
+            log.event(NorthPoleEvent.ELF_WAITING, id, waiting);
+        }
+
+        // Wait for Santa to take this elf's group off the queue
+        while (!elf.released) {
+            clock.park(this);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+
+        consultation.run();
+        elfLock.locked(queuedElfConsulted);
+        return true;
+    }
+
+    /**
+     * elfLock: a queued elf counts itself done
+     */
+    private void queuedElfConsulted(int id, GroupWork work) {
+        consultedCount++;
+        if (consultedCount == elfGroupSize) {
+            elfLock.signal(); // Wake Santa
+        }
+    }
+}
@@ -0,0 +1,334 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Santa Claus Problem - Monte Carlo Runner
+ *
+ * Runs many independent North Poles and reports the distribution of
+ * deliveries and elf consultations instead of a single sample, and the elf
+ * and reindeer wait times of all runs together.
+ *
+ * Runs are split across a ForkJoinPool (one worker per core by default).
+ * Every leaf task adds its runs to its own Tally of primitive counters, and
+ * the tallies are merged on the way back up, so workers never share state.
+ * The event runs of a leaf record into one pair of wait-time histograms, so
+ * the histograms are copied once per leaf rather than once per short run.
+ *
+ * Two models are available:
+ * - event   - EventSimulation, single-threaded and very fast (the default)
+ * - threads - a full SantaClaus instance with actor threads and the chosen
+ *             engine, best combined with the virtual clock
+ *
+ * Every run gets its own seed, split from --seed. The event model is
+ * single-threaded, so an event batch repeats exactly for the same --seed. In
+ * the threads model only every actor's own draws repeat; how the actors
+ * interleave is up to the scheduler (see SantaClaus), so a batch can come
+ * out differently even with the virtual clock.
+ * The threads model uses the condition engine unless --engine says otherwise.
+ * --config=<name|file> takes the team size, number of elves, group size and
+ * simulated time per run from a scenario (see NorthPoleConfig), so scaling
+ * sweeps need no recompiling; --num-elves and --time still override it.
+ *
+ * Usage: java MonteCarlo [--runs=<n>] [--model=event|threads] [--engine=<name>]
+ *                        [--clock=wall|scaled:<k>|virtual] [--config=<name|file>]
+ *                        [--teams=<k>] [--num-elves=<n>]
+ *                        [--harness=serial|parallel] [--time=<ms>] [--seed=<n>] [--parallelism=<n>]
+ */
+public class MonteCarlo {
+    // Runs a leaf task handles one after another before splitting further
+    private static final int EVENT_RUNS_PER_TASK = 64;
+
+    // One batch configuration, shared read-only by every task
+    private final String model;
+    private final String engine;
+    private final String clockMode;
+    private final int teamSize;
+    private final int teams;
+    private final int numElves;
+    private final int elfGroupSize;
+    private final boolean parallelHarness;
+    private final long time;
+    private final long[] seeds;
+
+    public MonteCarlo(String model, String engine, String clockMode, int teamSize, int teams, int numElves,
+                      int elfGroupSize, boolean parallelHarness, long time, int runs, long seed) {
+        this.model = model;
+        this.engine = engine;
+        this.clockMode = clockMode;
+        this.teamSize = teamSize;
+        this.teams = teams;
+        this.numElves = numElves;
+        this.elfGroupSize = elfGroupSize;
+        this.parallelHarness = parallelHarness;
+        this.time = time;
+
+        SplittableRandom master = new SplittableRandom(seed);
+        this.seeds = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            seeds[i] = master.nextLong();
+        }
+    }
+
+    /**
+     * Distribution of one non-negative integer result. Counts every value
+     * exactly, so percentiles need no sorting and merging is just addition.
+     */
+    static class Distribution {
+        private long[] counts = new long[64];
+        private long count = 0;
+        private long sum = 0;
+        private double sumOfSquares = 0;
+        private long min = Long.MAX_VALUE;
+        private long max = Long.MIN_VALUE;
+
+        void add(long value) {
+            if (value >= counts.length) {
+                counts = Arrays.copyOf(counts, (int) Math.max(value + 1, counts.length * 2L));
+            }
+            counts[(int) value]++;
+            count++;
+            sum += value;
+            sumOfSquares += (double) value * value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+
+        void merge(Distribution other) {
+            if (other.counts.length > counts.length) {
+                counts = Arrays.copyOf(counts, other.counts.length);
+            }
+            for (int i = 0; i < other.counts.length; i++) {
+                counts[i] += other.counts[i];
+            }
+            count += other.count;
+            sum += other.sum;
+            sumOfSquares += other.sumOfSquares;
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+        }
+
+        double mean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        double standardDeviation() {
+            if (count < 2) {
+                return 0;
+            }
+            double mean = mean();
+            return Math.sqrt(Math.max(0, (sumOfSquares - count * mean * mean) / (count - 1)));
+        }
+
+        /**
+         * Smallest value with at least the given fraction of results at or below it
+         */
+        long percentile(double fraction) {
+            long rank = Math.max(1, (long) Math.ceil(fraction * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return i;
+                }
+            }
+            return max;
+        }
+
+        String summary() {
+            if (count == 0) {
+                return "no runs";
+            }
+            return String.format("mean %.2f  sd %.2f  min %d  p5 %d  p50 %d  p95 %d  max %d",
+                    mean(), standardDeviation(), min, percentile(0.05), percentile(0.50), percentile(0.95), max);
+        }
+    }
+
+    /**
+     * Results of a batch of runs
+     */
+    static class Tally {
+        final Distribution deliveries = new Distribution();
+        final Distribution elfConsultations = new Distribution();
+        LatencyHistogram.Snapshot elfWaits = LatencyHistogram.Snapshot.EMPTY;
+        LatencyHistogram.Snapshot reindeerWaits = LatencyHistogram.Snapshot.EMPTY;
+
+        void add(long delivered, long consulted) {
+            deliveries.add(delivered);
+            elfConsultations.add(consulted);
+        }
+
+        Tally merge(Tally other) {
+            deliveries.merge(other.deliveries);
+            elfConsultations.merge(other.elfConsultations);
+            elfWaits = elfWaits.merge(other.elfWaits);
+            reindeerWaits = reindeerWaits.merge(other.reindeerWaits);
+            return this;
+        }
+    }
+
+    /**
+     * Runs the batch's seeds[from, to), splitting in halves until the range is small enough
+     */
+    private static class Runs extends RecursiveTask<Tally> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient MonteCarlo batch;
+        private final int from;
+        private final int to;
+
+        Runs(MonteCarlo batch, int from, int to) {
+            this.batch = batch;
+            this.from = from;
+            this.to = to;
+        }
+
+        protected Tally compute() {
+            // Threaded runs each keep a whole North Pole busy, so they are split down to one per task
+            int leafSize = batch.model.equals("event") ? EVENT_RUNS_PER_TASK : 1;
+            if (to - from > leafSize) {
+                int middle = (from + to) >>> 1;
+                Runs left = new Runs(batch, from, middle);
+                left.fork();
+                Tally right = new Runs(batch, middle, to).compute();
+                return left.join().merge(right);
+            }
+
+            Tally tally = new Tally();
+            LatencyHistogram elfWaits = new LatencyHistogram();
+            LatencyHistogram reindeerWaits = new LatencyHistogram();
+            for (int i = from; i < to; i++) {
+                batch.runOnce(batch.seeds[i], tally, elfWaits, reindeerWaits);
+            }
+            tally.elfWaits = tally.elfWaits.merge(elfWaits.snapshot());
+            tally.reindeerWaits = tally.reindeerWaits.merge(reindeerWaits.snapshot());
+            return tally;
+        }
+    }
+
+    private void runOnce(long seed, Tally tally, LatencyHistogram elfWaits, LatencyHistogram reindeerWaits) {
+        if (model.equals("event")) {
+            EventSimulation sim = new EventSimulation(teamSize, teams, numElves, elfGroupSize,
+                    parallelHarness, seed, elfWaits, reindeerWaits);
+            sim.run(time);
+            tally.add(sim.deliveries(), sim.elfConsultations());
+            return;
+        }
+
+        // The virtual clock belongs to the thread that creates it and sleeps on it
+        SimClock clock = SimClock.create(clockMode);
+        NorthPoleCoordinator coordinator = NorthPoleCoordinator.create(engine, teamSize, numElves,
+                elfGroupSize, parallelHarness, false, false, clock, NorthPoleLog.SILENT);
+        SantaClaus northPole = new SantaClaus(coordinator, clock, NorthPoleLog.SILENT, seed,
+                teamSize * teams, numElves, elfGroupSize, false);
+        try {
+            northPole.run(time);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Monte Carlo run interrupted", e);
+        }
+        tally.add(northPole.deliveries(), northPole.elfConsultations());
+        tally.elfWaits = tally.elfWaits.merge(northPole.elfWaits().snapshot());
+        tally.reindeerWaits = tally.reindeerWaits.merge(northPole.reindeerWaits().snapshot());
+    }
+
+    /**
+     * Run every seed on the given pool and merge the results
+     */
+    public Tally run(ForkJoinPool pool) {
+        if (seeds.length == 0) {
+            return new Tally();
+        }
+        return pool.invoke(new Runs(this, 0, seeds.length));
+    }
+
+    public static void main(String[] args) {
+        // The scenario is loaded first so that --num-elves and --time override it wherever they appear
+        NorthPoleConfig config = NorthPoleConfig.DEFAULT;
+        for (String arg : args) {
+            if (arg.startsWith("--config=")) {
+                String scenario = arg.substring("--config=".length());
+                try {
+                    config = NorthPoleConfig.load(scenario);
+                } catch (IOException | IllegalArgumentException e) {
+                    System.err.println("Could not load config " + scenario + ": " + e.getMessage());
+                    System.exit(1);
+                }
+            }
+        }
+
+        int runs = 1000;
+        String model = "event";
+        String engine = "condition";
+        String clockMode = "virtual";
+        int teams = 1;
+        int numElves = config.numElves;
+        boolean parallelHarness = false;
+        long time = config.simulationTime;
+        long seed = System.nanoTime();
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        for (String arg : args) {
+            if (arg.startsWith("--runs=")) {
+                runs = Integer.parseInt(arg.substring("--runs=".length()));
+            } else if (arg.equals("--model=event") || arg.equals("--model=threads")) {
+                model = arg.substring("--model=".length());
+            } else if (arg.startsWith("--engine=")) {
+                engine = arg.substring("--engine=".length());
+            } else if (arg.startsWith("--clock=")) {
+                clockMode = arg.substring("--clock=".length());
+            } else if (arg.startsWith("--teams=")) {
+                teams = Integer.parseInt(arg.substring("--teams=".length()));
+            } else if (arg.startsWith("--config=")) {
+                // Loaded above
+            } else if (arg.startsWith("--num-elves=")) {
+                numElves = Integer.parseInt(arg.substring("--num-elves=".length()));
+            } else if (arg.equals("--harness=parallel") || arg.equals("--harness=serial")) {
+                parallelHarness = arg.equals("--harness=parallel");
+            } else if (arg.startsWith("--time=")) {
+                time = Long.parseLong(arg.substring("--time=".length()));
+            } else if (arg.startsWith("--seed=")) {
+                seed = Long.parseLong(arg.substring("--seed=".length()));
+            } else if (arg.startsWith("--parallelism=")) {
+                parallelism = Integer.parseInt(arg.substring("--parallelism=".length()));
+            } else {
+                System.err.println("Unknown option: " + arg);
+                System.exit(1);
+            }
+        }
+
+        System.out.println("============================================================");
+        System.out.println("SANTA CLAUS PROBLEM - MONTE CARLO");
+        System.out.println("============================================================");
+        System.out.println("Configuration"
+                + (config == NorthPoleConfig.DEFAULT ? "" : " (" + config.name + ")") + ":");
+        System.out.println("  - Runs: " + runs + " on " + parallelism + " workers");
+        System.out.println("  - Model: " + model
+                + (model.equals("threads") ? " (" + engine + " engine, " + clockMode + " clock)" : ""));
+        System.out.println("  - Number of Reindeer: " + config.numReindeer * teams
+                + (teams > 1 ? " (" + teams + " sleigh teams of " + config.numReindeer + ")" : ""));
+        System.out.println("  - Number of Elves: " + numElves);
+        System.out.println("  - Elves per consultation group: " + config.elfGroupSize);
+        System.out.println("  - Harnessing: " + (parallelHarness ? "parallel" : "serial"));
+        System.out.println("  - Simulated time per run: " + time + " ms");
+        System.out.println("  - Seed: " + seed);
+        System.out.println("============================================================");
+
+        MonteCarlo batch = new MonteCarlo(model, engine, clockMode, config.numReindeer, teams, numElves,
+                config.elfGroupSize, parallelHarness, time, runs, seed);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        long start = System.nanoTime();
+        Tally tally = batch.run(pool);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        pool.shutdown();
+
+        System.out.println("Distributions over " + runs + " runs:");
+        System.out.println("  - Deliveries:        " + tally.deliveries.summary());
+        System.out.println("  - Elf Consultations: " + tally.elfConsultations.summary());
+        System.out.println("  - Elf wait:          " + tally.elfWaits.summary());
+        System.out.println("  - Reindeer wait:     " + tally.reindeerWaits.summary());
+        System.out.printf("  - Wall time: %.2f s (%.1f runs/s)%n", seconds, runs / seconds);
+        System.out.println("============================================================");
+    }
+}
@@ -0,0 +1,317 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Santa Claus Problem - Scenario Configuration
+ *
+ * The scale of one simulation: reindeer per sleigh team, number of elves,
+ * elves per consultation group and simulated length. The defaults are the
+ * classic problem (9 reindeer, 10 elves, groups of 3, 30 s), and any scenario
+ * can be loaded at startup instead of being compiled in:
+ *
+ * - by name, from a test case in test_cases.json, e.g. "Maximum Load Stress
+ *   Test" or its slug maximum_load_stress_test (case does not matter)
+ * - by path, from a JSON file holding one test case ({"name": ..., "config":
+ *   {...}}) or just the config object
+ *
+ * The config uses the keys of test_cases.json: num_reindeer, num_elves,
+ * elf_group_size and simulation_time (in seconds). Missing keys keep their
+ * default. The counts must be whole numbers that fit an int, there must be
+ * at least one reindeer and one elf per group, and a group can be no larger
+ * than the number of elves. Only the JSON that these files use is understood
+ * (objects, arrays, strings, numbers, booleans and null); there is no JSON
+ * library to depend on.
+ */
+public final class NorthPoleConfig {
+    public static final String TEST_CASES = "test_cases.json";
+    public static final NorthPoleConfig DEFAULT = new NorthPoleConfig("default", 9, 10, 3, 30000);
+
+    public final String name;
+    public final int numReindeer;
+    public final int numElves;
+    public final int elfGroupSize;
+    public final long simulationTime; // milliseconds
+
+    public NorthPoleConfig(String name, int numReindeer, int numElves, int elfGroupSize, long simulationTime) {
+        if (numReindeer < 1 || numElves < 0 || elfGroupSize < 1 || simulationTime < 0) {
+            throw new IllegalArgumentException("Invalid config " + name + ": " + numReindeer + " reindeer, "
+                    + numElves + " elves, groups of " + elfGroupSize + ", " + simulationTime + " ms");
+        }
+        this.name = name;
+        this.numReindeer = numReindeer;
+        this.numElves = numElves;
+        this.elfGroupSize = elfGroupSize;
+        this.simulationTime = simulationTime;
+    }
+
+    /**
+     * Load a config from a JSON file if one exists at nameOrPath, otherwise
+     * look the name up among the test cases in test_cases.json
+     */
+    public static NorthPoleConfig load(String nameOrPath) throws IOException {
+        Path path = Paths.get(nameOrPath);
+        if (Files.isRegularFile(path)) {
+            Map<String, Object> root = object(parse(path), path.toString());
+            Object config = root.get("config");
+            String name = root.get("name") instanceof String ? (String) root.get("name") : nameOrPath;
+            return fromJson(name, config != null ? object(config, path.toString()) : root);
+        }
+        return testCase(Paths.get(TEST_CASES), nameOrPath);
+    }
+
+    /**
+     * The test case with the given name (or slug) in a test_cases.json file
+     */
+    public static NorthPoleConfig testCase(Path file, String name) throws IOException {
+        Object cases = object(parse(file), file.toString()).get("test_cases");
+        if (!(cases instanceof List)) {
+            throw new IOException(file + " has no test_cases array");
+        }
+        List<String> names = new ArrayList<>();
+        for (Object entry : (List<?>) cases) {
+            Map<String, Object> testCase = object(entry, file.toString());
+            String caseName = String.valueOf(testCase.get("name"));
+            if (caseName.equalsIgnoreCase(name) || slug(caseName).equals(name.toLowerCase())) {
+                return fromJson(caseName, object(testCase.get("config"), caseName));
+            }
+            names.add(caseName);
+        }
+        throw new IllegalArgumentException("No test case named \"" + name + "\" in " + file + ", known: " + names);
+    }
+
+    /**
+     * Lower case with every run of other characters replaced by an underscore,
+     * as run_tests.sh names its output files
+     */
+    public static String slug(String name) {
+        return name.toLowerCase().replaceAll("[^a-z0-9]+", "_").replaceAll("^_+|_+$", "");
+    }
+
+    private static NorthPoleConfig fromJson(String name, Map<String, Object> config) {
+        int numReindeer = count(config, "num_reindeer", DEFAULT.numReindeer, 1);
+        int numElves = count(config, "num_elves", DEFAULT.numElves, 0);
+        int elfGroupSize = count(config, "elf_group_size", DEFAULT.elfGroupSize, 1);
+        if (elfGroupSize > numElves) {
+            throw new IllegalArgumentException("elf_group_size must be at most num_elves (" + numElves + "), not "
+                    + elfGroupSize);
+        }
+        double seconds = number(config, "simulation_time", DEFAULT.simulationTime / 1000.0);
+        if (!(seconds >= 0 && seconds * 1000 <= Long.MAX_VALUE)) {
+            throw new IllegalArgumentException("simulation_time must be a non-negative number of seconds, not "
+                    + seconds);
+        }
+        return new NorthPoleConfig(name, numReindeer, numElves, elfGroupSize, Math.round(seconds * 1000));
+    }
+
+    /**
+     * A whole number from min to Integer.MAX_VALUE
+     */
+    private static int count(Map<String, Object> config, String key, int fallback, int min) {
+        double value = number(config, key, fallback);
+        if (value != Math.rint(value) || value < min || value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(key + " must be a whole number from " + min + " to "
+                    + Integer.MAX_VALUE + ", not " + value);
+        }
+        return (int) value;
+    }
+
+    private static double number(Map<String, Object> config, String key, double fallback) {
+        Object value = config.get(key);
+        if (value == null) {
+            return fallback;
+        }
+        if (!(value instanceof Double)) {
+            throw new IllegalArgumentException(key + " must be a number, not " + value);
+        }
+        return (Double) value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> object(Object value, String where) {
+        if (!(value instanceof Map)) {
+            throw new IllegalArgumentException(where + ": expected a JSON object");
+        }
+        return (Map<String, Object>) value;
+    }
+
+    public String toString() {
+        return name + " (" + numReindeer + " reindeer, " + numElves + " elves, groups of " + elfGroupSize
+                + ", " + simulationTime + " ms)";
+    }
+
+    static Object parse(Path file) throws IOException {
+        return new JsonReader(new String(Files.readAllBytes(file), StandardCharsets.UTF_8), file.toString()).document();
+    }
+
+    /**
+     * Recursive descent over a JSON text: objects become LinkedHashMaps,
+     * arrays ArrayLists and numbers Doubles
+     */
+    private static class JsonReader {
+        private final String text;
+        private final String source;
+        private int pos = 0;
+
+        JsonReader(String text, String source) {
+            this.text = text;
+            this.source = source;
+        }
+
+        Object document() throws IOException {
+            Object value = value();
+            skipWhitespace();
+            if (pos != text.length()) {
+                throw error("trailing characters");
+            }
+            return value;
+        }
+
+        private Object value() throws IOException {
+            skipWhitespace();
+            if (pos >= text.length()) {
+                throw error("unexpected end of input");
+            }
+            char c = text.charAt(pos);
+            if (c == '{') {
+                return object();
+            } else if (c == '[') {
+                return array();
+            } else if (c == '"') {
+                return string();
+            } else if (text.startsWith("true", pos)) {
+                pos += 4;
+                return Boolean.TRUE;
+            } else if (text.startsWith("false", pos)) {
+                pos += 5;
+                return Boolean.FALSE;
+            } else if (text.startsWith("null", pos)) {
+                pos += 4;
+                return null;
+            }
+            return number();
+        }
+
+        private Map<String, Object> object() throws IOException {
+            Map<String, Object> object = new LinkedHashMap<>();
+            pos++;
+            skipWhitespace();
+            if (peek() == '}') {
+                pos++;
+                return object;
+            }
+            while (true) {
+                skipWhitespace();
+                if (peek() != '"') {
+                    throw error("expected a key");
+                }
+                String key = string();
+                skipWhitespace();
+                expect(':');
+                object.put(key, value());
+                skipWhitespace();
+                if (peek() == ',') {
+                    pos++;
+                } else {
+                    expect('}');
+                    return object;
+                }
+            }
+        }
+
+        private List<Object> array() throws IOException {
+            List<Object> array = new ArrayList<>();
+            pos++;
+            skipWhitespace();
+            if (peek() == ']') {
+                pos++;
+                return array;
+            }
+            while (true) {
+                array.add(value());
+                skipWhitespace();
+                if (peek() == ',') {
+                    pos++;
+                } else {
+                    expect(']');
+                    return array;
+                }
+            }
+        }
+
+        private String string() throws IOException {
+            StringBuilder out = new StringBuilder();
+            pos++;
+            while (pos < text.length()) {
+                char c = text.charAt(pos++);
+                if (c == '"') {
+                    return out.toString();
+                }
+                if (c != '\\') {
+                    out.append(c);
+                    continue;
+                }
+                if (pos >= text.length()) {
+                    break;
+                }
+                char escaped = text.charAt(pos++);
+                switch (escaped) {
+                    case 'n': out.append('\n'); break;
+                    case 't': out.append('\t'); break;
+                    case 'r': out.append('\r'); break;
+                    case 'b': out.append('\b'); break;
+                    case 'f': out.append('\f'); break;
+                    case 'u':
+                        if (pos + 4 > text.length()) {
+                            throw error("bad unicode escape");
+                        }
+                        out.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        pos += 4;
+                        break;
+                    default: out.append(escaped);
+                }
+            }
+            throw error("unterminated string");
+        }
+
+        private Double number() throws IOException {
+            int start = pos;
+            while (pos < text.length() && "+-0123456789.eE".indexOf(text.charAt(pos)) >= 0) {
+                pos++;
+            }
+            try {
+                return Double.valueOf(text.substring(start, pos));
+            } catch (NumberFormatException e) {
+                pos = start;
+                throw error("unexpected character '" + peek() + "'");
+            }
+        }
+
+        private void skipWhitespace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private char peek() {
+            return pos < text.length() ? text.charAt(pos) : '\0';
+        }
+
+        private void expect(char c) throws IOException {
+            if (peek() != c) {
+                throw error("expected '" + c + "'");
+            }
+            pos++;
+        }
+
+        private IOException error(String message) {
+            return new IOException(source + ": " + message + " at offset " + pos);
+        }
+    }
+}
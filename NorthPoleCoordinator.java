@@ -0,0 +1,91 @@
+/**
+ * Santa Claus Problem - Coordination Engine Abstraction
+ *
+ * The Santa, Reindeer and Elf threads in SantaClaus own the timing of the
+ * simulation (vacations, toy work, harnessing, consultations). A coordinator
+ * owns the shared counters and decides who blocks and who is woken:
+ *
+ * 1. arriveReindeer - a reindeer is back from vacation and wants to be harnessed
+ * 2. arriveElf      - an elf needs help and wants to join a consultation group
+ * 3. awaitSantaWork - Santa sleeps until a group is ready (reindeer have priority)
+ * 4. releaseGroup   - Santa lets the ready group proceed and waits for it to finish
+ *
+ * The engine is chosen at startup with --engine=<name>.
+ */
+public interface NorthPoleCoordinator {
+
+    /**
+     * The groups Santa can be woken by
+     */
+    enum Group { REINDEER, ELVES }
+
+    /**
+     * A piece of simulated work handed to the coordinator so that each engine
+     * can decide whether it runs inside or outside its critical sections
+     */
+    @FunctionalInterface
+    interface GroupWork {
+        void run() throws InterruptedException;
+    }
+
+    /**
+     * Called by a reindeer returning from vacation. Blocks until Santa allows
+     * harnessing, runs the harness work and reports completion.
+     *
+     * @return true if this reindeer was part of the delivery team
+     */
+    boolean arriveReindeer(int id, GroupWork harness) throws InterruptedException;
+
+    /**
+     * Called by an elf that needs help. Blocks until its group is consulted,
+     * runs the consultation work and reports completion.
+     *
+     * @return true if this elf was part of a consulted group
+     */
+    boolean arriveElf(int id, GroupWork consultation) throws InterruptedException;
+
+    /**
+     * Called by Santa. Sleeps until a group is ready, reindeer first.
+     */
+    Group awaitSantaWork() throws InterruptedException;
+
+    /**
+     * Called by Santa for the group returned by awaitSantaWork. Lets the group
+     * proceed, waits until every member is done and then runs Santa's own work.
+     */
+    void releaseGroup(Group group, GroupWork santaWork) throws InterruptedException;
+
+    /**
+     * Short description printed in the configuration block
+     */
+    String description();
+
+    /**
+     * Create the engine with the given name. parallelHarness and elfQueue only
+     * change the monitor engine, the other engines always harness outside
+     * their locks and never hold a lock through a consultation. profileLocks
+     * times the monitor engine's locks (see ProfiledMonitor) and is rejected
+     * for the other engines. The engine tells clock when actors block and
+     * wake, it must be the clock the actors sleep on.
+     */
+    static NorthPoleCoordinator create(String engine, int numReindeer, int numElves, int elfGroupSize,
+                                       boolean parallelHarness, boolean elfQueue, boolean profileLocks,
+                                       SimClock clock, NorthPoleLog log) {
+        if (profileLocks && !engine.equals("monitor")) {
+            throw new IllegalArgumentException("Lock profiling needs the monitor engine, not " + engine);
+        }
+        switch (engine) {
+            case "monitor":
+                return new MonitorCoordinator(numReindeer, elfGroupSize, parallelHarness, elfQueue, clock, log,
+                        profileLocks);
+            case "condition":
+                return new ConditionCoordinator(numReindeer, elfGroupSize, clock, log);
+            case "lockfree":
+                return new LockFreeCoordinator(numReindeer, numElves, elfGroupSize, clock, log);
+            case "phaser":
+                return new PhaserCoordinator(numReindeer, elfGroupSize, clock, log);
+            default:
+                throw new IllegalArgumentException("Unknown engine: " + engine);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Santa Claus Problem - Live Counters
+ *
+ * What the actors of one SantaClaus instance have done so far and what they
+ * are doing right now. The actors update it as they go, outside any lock of
+ * the coordination engine: completed jobs and the number of waiting elves
+ * and reindeer are LongAdders, Santa's state is a volatile field. Reading
+ * never touches the protocol's monitors, so a JMX client can poll it as often
+ * as it likes (see NorthPoleMXBean).
+ *
+ * Rates are averages over the simulated time since the actors were started.
+ */
+public class NorthPoleCounters implements NorthPoleMXBean {
+    public static final String OBJECT_NAME = "NorthPole:type=SantaClaus";
+
+    /**
+     * What Santa is doing
+     */
+    public enum SantaState { SLEEPING, DELIVERING, CONSULTING }
+
+    private final SimClock clock;
+    private volatile long startedAt = -1;
+
+    private final LongAdder deliveries = new LongAdder();
+    private final LongAdder elfConsultations = new LongAdder();
+    private final LongAdder waitingElves = new LongAdder();
+    private final LongAdder reindeerCount = new LongAdder();
+    private volatile SantaState santaState = SantaState.SLEEPING;
+
+    public NorthPoleCounters(SimClock clock) {
+        this.clock = clock;
+    }
+
+    void started() {
+        startedAt = clock.now();
+    }
+
+    /**
+     * Count one delivery and return the total; only called by Santa
+     */
+    long delivered() {
+        deliveries.increment();
+        return deliveries.sum();
+    }
+
+    /**
+     * Count one consultation and return the total; only called by Santa
+     */
+    long consulted() {
+        elfConsultations.increment();
+        return elfConsultations.sum();
+    }
+
+    void elfWaiting(int change) {
+        waitingElves.add(change);
+    }
+
+    void reindeerWaiting(int change) {
+        reindeerCount.add(change);
+    }
+
+    void santa(SantaState state) {
+        santaState = state;
+    }
+
+    /**
+     * Register on the platform MBean server under OBJECT_NAME
+     */
+    public void register() throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+    }
+
+    public long getDeliveries() {
+        return deliveries.sum();
+    }
+
+    public long getElfConsultations() {
+        return elfConsultations.sum();
+    }
+
+    public long getWaitingElves() {
+        return waitingElves.sum();
+    }
+
+    public long getReindeerCount() {
+        return reindeerCount.sum();
+    }
+
+    public String getSantaState() {
+        return santaState.name();
+    }
+
+    public SantaState santaState() {
+        return santaState;
+    }
+
+    public long getSimulatedSeconds() {
+        return startedAt < 0 ? 0 : (clock.now() - startedAt) / 1000;
+    }
+
+    public double getDeliveriesPerSecond() {
+        return rate(deliveries.sum());
+    }
+
+    public double getElfConsultationsPerSecond() {
+        return rate(elfConsultations.sum());
+    }
+
+    private double rate(long count) {
+        long elapsed = startedAt < 0 ? 0 : clock.now() - startedAt;
+        return elapsed <= 0 ? 0 : count * 1000.0 / elapsed;
+    }
+}
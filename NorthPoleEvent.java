@@ -0,0 +1,146 @@
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Santa Claus Problem - Log Events
+ *
+ * Everything the actors and coordination engines report. A log record is
+ * just the event, the actor id and one number (the delivery or session
+ * number or the elf group size for Santa, the number of waiting elves for
+ * an elf), so recording
+ * it needs no string building. The text is only produced when the record
+ * is formatted, from the template below:
+ *
+ *   {id} - the actor id
+ *   {n}  - the number that comes with the event
+ *
+ * The templates are also kept pre-encoded as bytes, so a record can be
+ * written into a reusable byte buffer without creating any objects.
+ *
+ * The ordinal doubles as the event code of the binary EventJournal, so new
+ * events go at the end.
+ */
+public enum NorthPoleEvent {
+    SANTA_STARTED("SANTA: Starting shift at the North Pole"),
+    SANTA_WOKEN_BY_REINDEER("\nSANTA: Ho Ho Ho! All reindeer are back!\nSANTA: Preparing sleigh for Christmas delivery..."),
+    SANTA_DELIVERING("SANTA: Sleigh ready! Delivering toys! (Delivery #{n})\nSANTA: Going back to sleep...\n"),
+    SANTA_WOKEN_BY_ELVES("\nSANTA: {n} elves need help!\nSANTA: Meeting with elves..."),
+    SANTA_CONSULTED("SANTA: Consultation complete! (Session #{n})\nSANTA: Going back to sleep...\n"),
+    REINDEER_RETURNED("Reindeer {id}: Returning from vacation"),
+    REINDEER_LAST("Reindeer {id}: I'm the last one! Waking Santa!"),
+    REINDEER_HARNESSING("Reindeer {id}: Getting harnessed to sleigh"),
+    REINDEER_HARNESSED("Reindeer {id}: Harnessed! Ready to deliver toys!"),
+    ELF_WAITING("Elf {id}: Waiting for help (Total waiting: {n})"),
+    ELF_GROUP_FORMED("Elf {id}: We have {n} elves waiting! Waking Santa!"),
+    ELF_CONSULTING("Elf {id}: Getting help from Santa..."),
+    ELF_HELPED("Elf {id}: Problem solved! Back to work!");
+
+    /**
+     * Who reports an event, taken from the start of its name
+     */
+    public enum Actor { SANTA, REINDEER, ELF }
+
+    private static final int ID = 0;
+    private static final int NUMBER = 1;
+    // Longest decimal int: "-2147483648"
+    private static final int MAX_DIGITS = 11;
+
+    // The template split around its placeholders: text[0] field[0] text[1] field[1] ... text[k]
+    private final String[] text;
+    private final int[] fields;
+    private final byte[][] encoded;
+    private final int maxEncodedLength;
+    private final Actor actor;
+
+    NorthPoleEvent(String template) {
+        List<String> pieces = new ArrayList<>();
+        List<Integer> found = new ArrayList<>();
+        int start = 0;
+        int open;
+        while ((open = template.indexOf('{', start)) >= 0) {
+            int close = template.indexOf('}', open);
+            pieces.add(template.substring(start, open));
+            found.add(template.substring(open + 1, close).equals("id") ? ID : NUMBER);
+            start = close + 1;
+        }
+        pieces.add(template.substring(start));
+
+        this.text = pieces.toArray(new String[0]);
+        this.fields = new int[found.size()];
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = found.get(i);
+        }
+        this.encoded = new byte[text.length][];
+        int length = fields.length * MAX_DIGITS;
+        for (int i = 0; i < text.length; i++) {
+            encoded[i] = text[i].getBytes(StandardCharsets.UTF_8);
+            length += encoded[i].length;
+        }
+        this.maxEncodedLength = length;
+        this.actor = Actor.valueOf(name().substring(0, name().indexOf('_')));
+    }
+
+    public Actor actor() {
+        return actor;
+    }
+
+    /**
+     * Append the text of one record, without a line break
+     */
+    public void appendTo(StringBuilder out, int actor, int value) {
+        out.append(text[0]);
+        for (int i = 0; i < fields.length; i++) {
+            out.append(fields[i] == ID ? actor : value);
+            out.append(text[i + 1]);
+        }
+    }
+
+    /**
+     * Most bytes encodeTo can write for this event
+     */
+    public int maxEncodedLength() {
+        return maxEncodedLength;
+    }
+
+    /**
+     * Write the text of one record into buffer at the given offset, without a
+     * line break, and return the offset after it
+     */
+    public int encodeTo(byte[] buffer, int at, int actor, int value) {
+        at = put(buffer, at, encoded[0]);
+        for (int i = 0; i < fields.length; i++) {
+            at = putDecimal(buffer, at, fields[i] == ID ? actor : value);
+            at = put(buffer, at, encoded[i + 1]);
+        }
+        return at;
+    }
+
+    private static int put(byte[] buffer, int at, byte[] bytes) {
+        System.arraycopy(bytes, 0, buffer, at, bytes.length);
+        return at + bytes.length;
+    }
+
+    private static int putDecimal(byte[] buffer, int at, int value) {
+        long remaining = value;
+        if (remaining < 0) {
+            buffer[at++] = '-';
+            remaining = -remaining;
+        }
+        int digits = 1;
+        for (long rest = remaining / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        for (int i = at + digits - 1; i >= at; i--) {
+            buffer[i] = (byte) ('0' + remaining % 10);
+            remaining /= 10;
+        }
+        return at + digits;
+    }
+
+    public String format(int actor, int value) {
+        StringBuilder out = new StringBuilder();
+        appendTo(out, actor, value);
+        return out.toString();
+    }
+}
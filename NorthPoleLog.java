@@ -0,0 +1,24 @@
+/**
+ * Santa Claus Problem - Log Sink
+ *
+ * Where the actors and coordination engines report what they are doing.
+ * Records are passed as an event, an actor id and one number, never as
+ * text, so a sink decides whether and when to format them:
+ *
+ * - CONSOLE   formats and prints each record straight away
+ * - SILENT    drops everything (MonteCarlo and the benchmarks)
+ * - RingBufferLog queues records and prints them from its own thread
+ */
+@FunctionalInterface
+public interface NorthPoleLog {
+    NorthPoleLog CONSOLE = (event, actor, value) -> System.out.println(event.format(actor, value));
+    NorthPoleLog SILENT = (event, actor, value) -> { };
+
+    void event(NorthPoleEvent event, int actor, int value);
+
+    /**
+     * Write out everything logged so far and stop logging
+     */
+    default void close() {
+    }
+}
@@ -0,0 +1,34 @@
+/**
+ * Santa Claus Problem - Live Counters over JMX
+ *
+ * The attributes SantaClaus registers on the platform MBean server as
+ * NorthPole:type=SantaClaus, so a long run can be watched in jconsole or
+ * any other JMX client while it goes on. Times and rates are simulated.
+ */
+public interface NorthPoleMXBean {
+
+    long getDeliveries();
+
+    long getElfConsultations();
+
+    /**
+     * Elves that have asked for help and are not being consulted yet
+     */
+    long getWaitingElves();
+
+    /**
+     * Reindeer back from vacation and not being harnessed yet
+     */
+    long getReindeerCount();
+
+    /**
+     * SLEEPING, DELIVERING or CONSULTING
+     */
+    String getSantaState();
+
+    long getSimulatedSeconds();
+
+    double getDeliveriesPerSecond();
+
+    double getElfConsultationsPerSecond();
+}
@@ -0,0 +1,217 @@
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Santa Claus Problem - Phaser Coordination Engine
+ *
+ * Every sleigh team and every elf group is its own two-phase barrier:
+ *
+ *   phase 0 - the members have gathered and Santa lets them start
+ *   phase 1 - every member finished harnessing / consulting
+ *
+ * Santa is one party of each barrier. Large teams use a tiered Phaser tree
+ * (one child Phaser per TIER_SIZE members) so arrivals do not all contend on
+ * the same state word. A returning reindeer always joins the team that is
+ * currently gathering, so one team gathering never blocks the next: a herd
+ * of hundreds of reindeer simply fills team after team while Santa delivers.
+ *
+ * Phasers block without telling anyone, so every team also counts its
+ * arrivals at each phase: the last party to arrive tells the clock (see
+ * SimClock) that the waiting ones are woken, and any other party that is
+ * going to wait tells it that it blocks.
+ */
+public class PhaserCoordinator implements NorthPoleCoordinator {
+    private static final int TIER_SIZE = 16;
+
+    private final int numReindeer;
+    private final int elfGroupSize;
+    private final SimClock clock;
+    private final NorthPoleLog log;
+
+    private final AtomicReference<Team> gatheringTeam;
+    private final AtomicReference<Team> gatheringElves;
+    private final ConcurrentLinkedQueue<Team> readyTeams = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Team> readyElves = new ConcurrentLinkedQueue<>();
+
+    // One ring per group that is ready for Santa, who parks while there is none
+    private final AtomicInteger santaBell = new AtomicInteger();
+    private volatile Thread santa;
+    private Team current;
+
+    /**
+     * A group of members plus Santa, synchronized by a (possibly tiered) Phaser
+     */
+    private static class Team {
+        final AtomicInteger joined = new AtomicInteger();
+        final Phaser root = new Phaser(1); // Santa's party
+        final Phaser[] tiers;
+
+        // Arrivals of all parties, Santa included, at phase 0 and phase 1
+        final int parties;
+        final AtomicInteger started = new AtomicInteger();
+        final AtomicInteger finished = new AtomicInteger();
+
+        Team(int size) {
+            parties = size + 1;
+            if (size <= TIER_SIZE) {
+                root.bulkRegister(size);
+                tiers = null;
+            } else {
+                tiers = new Phaser[(size + TIER_SIZE - 1) / TIER_SIZE];
+                for (int i = 0; i < tiers.length; i++) {
+                    tiers[i] = new Phaser(root, Math.min(TIER_SIZE, size - i * TIER_SIZE));
+                }
+            }
+        }
+
+        Phaser phaserFor(int position) {
+            return tiers == null ? root : tiers[position / TIER_SIZE];
+        }
+    }
+
+    /**
+     * A member's place in a team
+     */
+    private static class Seat {
+        final Team team;
+        final int position;
+
+        Seat(Team team, int position) {
+            this.team = team;
+            this.position = position;
+        }
+    }
+
+    public PhaserCoordinator(int numReindeer, int elfGroupSize, SimClock clock, NorthPoleLog log) {
+        this.numReindeer = numReindeer;
+        this.elfGroupSize = elfGroupSize;
+        this.clock = clock;
+        this.log = log;
+        this.gatheringTeam = new AtomicReference<>(new Team(numReindeer));
+        this.gatheringElves = new AtomicReference<>(new Team(elfGroupSize));
+    }
+
+    public String description() {
+        return "Phaser barriers per sleigh team and elf group";
+    }
+
+    public Group awaitSantaWork() throws InterruptedException {
+        santa = Thread.currentThread();
+        while (true) {
+            int rings = santaBell.get();
+            if (rings > 0) {
+                if (santaBell.compareAndSet(rings, rings - 1)) {
+                    break;
+                }
+                continue;
+            }
+            clock.park(this);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+        // Reindeer have priority
+        current = readyTeams.poll();
+        if (current != null) {
+            return Group.REINDEER;
+        }
+        current = readyElves.poll();
+        return Group.ELVES;
+    }
+
+    public void releaseGroup(Group group, GroupWork santaWork) throws InterruptedException {
+        Team team = current;
+        Phaser root = team.root;
+        current = null;
+
+        // Phase 0: let the members start once all of them arrived, phase 1: wait until all are done
+        arriveToStart(team);
+        root.awaitAdvanceInterruptibly(root.arrive());
+        if (team.finished.incrementAndGet() < team.parties) {
+            clock.blocked(1);
+        }
+        root.awaitAdvanceInterruptibly(root.arrive());
+
+        santaWork.run();
+    }
+
+    /**
+     * Count an arrival at phase 0, where every party waits for the last one
+     */
+    private void arriveToStart(Team team) {
+        if (team.started.incrementAndGet() == team.parties) {
+            clock.woke(team.parties - 1);
+        } else {
+            clock.blocked(1);
+        }
+    }
+
+    private void ringSanta() {
+        santaBell.incrementAndGet();
+        Thread s = santa;
+        if (s != null) {
+            clock.unpark(s);
+        }
+    }
+
+    /**
+     * Join the group that is currently gathering. The member that fills it
+     * is the only one to open the next group, so no Team is built in vain.
+     */
+    private Seat join(AtomicReference<Team> gathering, ConcurrentLinkedQueue<Team> ready, int size) {
+        while (true) {
+            Team team = gathering.get();
+            int pos = team.joined.getAndIncrement();
+            if (pos < size) {
+                if (pos == size - 1) {
+                    gathering.set(new Team(size));
+                    ready.add(team);
+                    ringSanta();
+                }
+                return new Seat(team, pos);
+            }
+            // Team already full, its last member is about to open the next one
+            while (gathering.get() == team) {
+                Thread.yield();
+            }
+        }
+    }
+
+    /**
+     * Wait for Santa, run the work and report it done
+     */
+    private void takePart(Seat seat, GroupWork work) throws InterruptedException {
+        Phaser phaser = seat.team.phaserFor(seat.position);
+        arriveToStart(seat.team);
+        phaser.awaitAdvanceInterruptibly(phaser.arrive());
+        work.run();
+        // Only Santa waits at phase 1, so the last member to finish wakes him
+        if (seat.team.finished.incrementAndGet() == seat.team.parties) {
+            clock.woke(1);
+        }
+        phaser.arrive();
+    }
+
+    public boolean arriveReindeer(int id, GroupWork harness) throws InterruptedException {
+        Seat seat = join(gatheringTeam, readyTeams, numReindeer);
+        if (seat.position == numReindeer - 1) {
+            log.event(NorthPoleEvent.REINDEER_LAST, id, 0);
+        }
+        takePart(seat, harness);
+        return true;
+    }
+
+    public boolean arriveElf(int id, GroupWork consultation) throws InterruptedException {
+        Seat seat = join(gatheringElves, readyElves, elfGroupSize);
+        if (seat.position == elfGroupSize - 1) {
+            log.event(NorthPoleEvent.ELF_GROUP_FORMED, id, elfGroupSize);
+            ProtocolEvents.elfGroupFormed(id, elfGroupSize);
+        } else {
+            log.event(NorthPoleEvent.ELF_WAITING, id, seat.position + 1);
+        }
+        takePart(seat, consultation);
+        return true;
+    }
+}
@@ -0,0 +1,296 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Santa Claus Problem - Profiled Monitor
+ *
+ * A monitor lock that can account for its own contention. The monitor
+ * engine runs every critical section through locked(), which synchronizes on
+ * this object and brackets the section with the accounting:
+ *
+ *   private final ProfiledMonitor.Section waitForGroup = this::waitForGroup;
+ *
+ *   lock.locked(waitForGroup);     // or locked(section, id, work)
+ *
+ *   private void waitForGroup(int id, GroupWork work) throws InterruptedException {
+ *       ...
+ *       lock.await();          // instead of lock.wait()
+ *       ...
+ *       lock.signal();         // instead of lock.notify(), and signalAll()
+ *       lock.holding(work);    // work that sleeps on the clock inside the monitor
+ *   }
+ *
+ * A Decision returns a boolean, which decide() runs the same way and hands
+ * back. A section gets the id and work of the actor that runs it instead of
+ * capturing them, so it can be created once: a capturing lambda would be a
+ * new object on every entry until the JIT compiles it away, and the actors'
+ * cycle is meant to allocate nothing (see AllocationCheck).
+ *
+ * For each lock this gives the number of acquisitions, the real time threads
+ * spent blocked getting in, the real time spent in wait() and a histogram of
+ * hold times. A wait() gives the monitor up, so it ends one hold and the
+ * wake-up starts the next; re-entering the monitor after being notified is
+ * counted as wait time, since the JVM does not tell the two apart.
+ *
+ * The counters are plain fields: they are only updated by the thread that
+ * holds the monitor, and read under it by snapshot(). When profiling is off
+ * and the clock is not virtual every method returns at once, await() is a
+ * plain wait() and signal() a plain notify().
+ *
+ * The same brackets tell a virtual clock (see SimClock) who is blocked on
+ * the monitor. A thread in wait() is blocked until signal() or signalAll()
+ * picks it. A thread waiting to get in counts as runnable, since the holder
+ * is running and will let it in, except while the holder sleeps on the
+ * clock inside holding(): then the holder takes everyone waiting to get in
+ * off the count and puts them back when it wakes up.
+ */
+public class ProfiledMonitor {
+    // Set in entering while the holder sleeps inside holding()
+    private static final long HOLDER_ASLEEP = 1L << 32;
+
+    private final String name;
+    private final boolean enabled;
+    private final SimClock clock;
+    private final boolean counting;
+
+    // Threads on their way in (entered or notified), counted only for the virtual clock
+    private final AtomicLong entering = new AtomicLong();
+
+    // Guarded by this monitor
+    private long acquires = 0;
+    private long blockedNanos = 0;
+    private long waits = 0;
+    private long waitNanos = 0;
+    private long heldSince = 0;
+    private int waiting = 0;
+    private int notified = 0;
+
+    private final LatencyHistogram holdTimes = new LatencyHistogram();
+
+    public ProfiledMonitor(String name, boolean enabled, SimClock clock) {
+        this.name = name;
+        this.enabled = enabled;
+        this.clock = clock;
+        this.counting = clock.countsThreads();
+    }
+
+    /**
+     * A critical section, given the id and work of the actor that runs it
+     */
+    @FunctionalInterface
+    public interface Section {
+        void run(int id, NorthPoleCoordinator.GroupWork work) throws InterruptedException;
+    }
+
+    /**
+     * A critical section that decides something
+     */
+    @FunctionalInterface
+    public interface Decision {
+        boolean run(int id, NorthPoleCoordinator.GroupWork work) throws InterruptedException;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public void locked(Section section) throws InterruptedException {
+        locked(section, 0, null);
+    }
+
+    /**
+     * Run the section holding this monitor
+     */
+    public void locked(Section section, int id, NorthPoleCoordinator.GroupWork work) throws InterruptedException {
+        long requested = request();
+        synchronized (this) {
+            acquired(requested);
+            try {
+                section.run(id, work);
+            } finally {
+                release();
+            }
+        }
+    }
+
+    public boolean decide(Decision section) throws InterruptedException {
+        return decide(section, 0, null);
+    }
+
+    /**
+     * Run the section holding this monitor and return its decision
+     */
+    public boolean decide(Decision section, int id, NorthPoleCoordinator.GroupWork work)
+            throws InterruptedException {
+        long requested = request();
+        synchronized (this) {
+            acquired(requested);
+            try {
+                return section.run(id, work);
+            } finally {
+                release();
+            }
+        }
+    }
+
+    /**
+     * Called just before entering the monitor; pass the result to acquired()
+     */
+    private long request() {
+        if (counting && (entering.incrementAndGet() & HOLDER_ASLEEP) != 0) {
+            clock.blocked(1);
+        }
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * First statement inside the synchronized block
+     */
+    private void acquired(long requested) {
+        if (counting) {
+            entering.decrementAndGet();
+        }
+        if (!enabled) {
+            return;
+        }
+        long now = System.nanoTime();
+        acquires++;
+        blockedNanos += now - requested;
+        heldSince = now;
+    }
+
+    /**
+     * wait() on this monitor, accounted as the end of one hold and the start of the next
+     */
+    public void await() throws InterruptedException {
+        if (counting) {
+            waiting++;
+            clock.blocked(1);
+        }
+        try {
+            if (!enabled) {
+                wait();
+                return;
+            }
+            long waitedSince = System.nanoTime();
+            holdTimes.record(waitedSince - heldSince);
+            try {
+                wait();
+            } finally {
+                long now = System.nanoTime();
+                waits++;
+                waitNanos += now - waitedSince;
+                heldSince = now;
+            }
+        } finally {
+            if (counting) {
+                woken();
+            }
+        }
+    }
+
+    /**
+     * Back from wait(): a signalled thread was counted by the signal, any
+     * other return (an interrupt) puts itself back
+     */
+    private void woken() {
+        if (notified > 0) {
+            notified--;
+            entering.decrementAndGet();
+        } else {
+            waiting--;
+            clock.woke(1);
+        }
+    }
+
+    /**
+     * notify() on this monitor
+     */
+    public void signal() {
+        if (counting && waiting > 0) {
+            waiting--;
+            notified++;
+            entering.incrementAndGet();
+            clock.woke(1);
+        }
+        notify();
+    }
+
+    /**
+     * notifyAll() on this monitor
+     */
+    public void signalAll() {
+        if (counting && waiting > 0) {
+            notified += waiting;
+            entering.addAndGet(waiting);
+            clock.woke(waiting);
+            waiting = 0;
+        }
+        notifyAll();
+    }
+
+    /**
+     * Run work that sleeps on the clock while this thread holds the monitor
+     */
+    public void holding(NorthPoleCoordinator.GroupWork work) throws InterruptedException {
+        if (!counting) {
+            work.run();
+            return;
+        }
+        clock.blocked((int) entering.getAndAdd(HOLDER_ASLEEP));
+        try {
+            work.run();
+        } finally {
+            clock.woke((int) entering.getAndAdd(-HOLDER_ASLEEP));
+        }
+    }
+
+    /**
+     * Last statement inside the synchronized block
+     */
+    private void release() {
+        if (enabled) {
+            holdTimes.record(System.nanoTime() - heldSince);
+        }
+    }
+
+    public synchronized Snapshot snapshot() {
+        return new Snapshot(name, acquires, blockedNanos, waits, waitNanos, holdTimes.snapshot());
+    }
+
+    /**
+     * The counters of one monitor at one point in time
+     */
+    public static class Snapshot {
+        public final String name;
+        public final long acquires;
+        public final long blockedNanos;
+        public final long waits;
+        public final long waitNanos;
+        public final LatencyHistogram.Snapshot holdTimes;
+
+        Snapshot(String name, long acquires, long blockedNanos, long waits, long waitNanos,
+                 LatencyHistogram.Snapshot holdTimes) {
+            this.name = name;
+            this.acquires = acquires;
+            this.blockedNanos = blockedNanos;
+            this.waits = waits;
+            this.waitNanos = waitNanos;
+            this.holdTimes = holdTimes;
+        }
+
+        /**
+         * One line of acquisitions, blocked and wait time, and one of hold times in microseconds
+         */
+        public String summary() {
+            if (acquires == 0) {
+                return String.format("%-12s never acquired", name);
+            }
+            LatencyHistogram.Snapshot held = holdTimes;
+            return String.format("%-12s %d acquires, blocked %.1f ms (%.2f us avg), %d waits %.1f ms%n"
+                            + "      %-12s hold p50 %.2f us  p99 %.2f us  p99.9 %.2f us  max %.2f us",
+                    name, acquires, blockedNanos / 1e6, blockedNanos / 1e3 / acquires, waits, waitNanos / 1e6,
+                    "", held.percentile(0.50) / 1e3, held.percentile(0.99) / 1e3,
+                    held.percentile(0.999) / 1e3, held.max() / 1e3);
+        }
+    }
+}
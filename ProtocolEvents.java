@@ -0,0 +1,187 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Santa Claus Problem - Flight Recorder Events
+ *
+ * JDK Flight Recorder events for every phase of the protocol, so a recording
+ * lines up lock contention on the coordination engines with what the actors
+ * were doing:
+ *
+ *   java -XX:StartFlightRecording=filename=north-pole.jfr SantaClaus
+ *
+ * Phases with a start and an end (Santa's sleep, harnessing, consultations,
+ * delivery preparation) are JFR duration events in real time. A reindeer
+ * arrival carries its wait in simulated time.
+ *
+ * Event objects are only created while a recording has the event enabled:
+ * the begin...() helpers return null otherwise, so with no recording running
+ * the actors' cycle still allocates nothing (see AllocationCheck), whether
+ * or not the JIT has got round to escape analysis.
+ *
+ * The event types are only looked up once Flight Recorder is running:
+ * EventType.getEventType sets up Flight Recorder's metadata, which takes a
+ * few hundred milliseconds, and when the first actor to report an event did
+ * that it came out of the simulated time (all of it at scaled:1000). The
+ * event classes themselves are loaded up front, by initialize() from
+ * SantaClaus before its actors start: compiled against event classes that
+ * were never loaded, the disabled branches cost each actor loop one stray
+ * allocation (see AllocationCheck).
+ */
+final class ProtocolEvents {
+    // Loading an event class does not start Flight Recorder
+    private static final Class<?>[] EVENTS = {
+        ReindeerArrival.class, SantaWake.class, Harness.class, ElfGroupFormed.class, Consultation.class, Delivery.class,
+    };
+
+    /**
+     * Looked up on first use, which the helpers only make once Flight Recorder is running
+     */
+    private static final class Types {
+        static final EventType REINDEER_ARRIVAL = EventType.getEventType(ReindeerArrival.class);
+        static final EventType SANTA_WAKE = EventType.getEventType(SantaWake.class);
+        static final EventType HARNESS = EventType.getEventType(Harness.class);
+        static final EventType ELF_GROUP_FORMED = EventType.getEventType(ElfGroupFormed.class);
+        static final EventType CONSULTATION = EventType.getEventType(Consultation.class);
+        static final EventType DELIVERY = EventType.getEventType(Delivery.class);
+    }
+
+    private ProtocolEvents() {
+    }
+
+    /**
+     * Load the event classes now rather than at the first event
+     */
+    static void initialize() {
+        // Calling this is enough to run the static initializer
+    }
+
+    @Name("northpole.ReindeerArrival")
+    @Label("Reindeer Arrival")
+    @Category({"North Pole", "Reindeer"})
+    @Description("A reindeer returned from vacation and has now been let in to be harnessed")
+    static class ReindeerArrival extends Event {
+        @Label("Reindeer")
+        int reindeer;
+
+        @Label("Wait")
+        @Description("Simulated time from returning until harnessing started")
+        @Timespan(Timespan.NANOSECONDS)
+        long waited;
+    }
+
+    @Name("northpole.SantaWake")
+    @Label("Santa Wake")
+    @Category("North Pole")
+    @Description("Santa slept until a sleigh team or an elf group was ready")
+    static class SantaWake extends Event {
+        @Label("Woken By")
+        String group;
+    }
+
+    @Name("northpole.Harness")
+    @Label("Harness")
+    @Category({"North Pole", "Reindeer"})
+    static class Harness extends Event {
+        @Label("Reindeer")
+        int reindeer;
+    }
+
+    @Name("northpole.ElfGroupFormed")
+    @Label("Elf Group Formed")
+    @Category({"North Pole", "Elves"})
+    @Description("An elf completed a group waiting for Santa's help")
+    static class ElfGroupFormed extends Event {
+        @Label("Elf")
+        int elf;
+
+        @Label("Group Size")
+        int groupSize;
+    }
+
+    @Name("northpole.Consultation")
+    @Label("Consultation")
+    @Category({"North Pole", "Elves"})
+    static class Consultation extends Event {
+        @Label("Elf")
+        int elf;
+    }
+
+    @Name("northpole.Delivery")
+    @Label("Delivery")
+    @Category("North Pole")
+    @Description("Santa prepared the sleigh for a delivery")
+    static class Delivery extends Event {
+        @Label("Delivery Number")
+        int delivery;
+    }
+
+    static SantaWake beginSantaWake() {
+        if (!FlightRecorder.isInitialized() || !Types.SANTA_WAKE.isEnabled()) {
+            return null;
+        }
+        SantaWake event = new SantaWake();
+        event.begin();
+        return event;
+    }
+
+    static Harness beginHarness() {
+        if (!FlightRecorder.isInitialized() || !Types.HARNESS.isEnabled()) {
+            return null;
+        }
+        Harness event = new Harness();
+        event.begin();
+        return event;
+    }
+
+    static Consultation beginConsultation() {
+        if (!FlightRecorder.isInitialized() || !Types.CONSULTATION.isEnabled()) {
+            return null;
+        }
+        Consultation event = new Consultation();
+        event.begin();
+        return event;
+    }
+
+    static Delivery beginDelivery() {
+        if (!FlightRecorder.isInitialized() || !Types.DELIVERY.isEnabled()) {
+            return null;
+        }
+        Delivery event = new Delivery();
+        event.begin();
+        return event;
+    }
+
+    static void reindeerArrival(int reindeer, long waited) {
+        if (!FlightRecorder.isInitialized() || !Types.REINDEER_ARRIVAL.isEnabled()) {
+            return;
+        }
+        ReindeerArrival event = new ReindeerArrival();
+        if (event.shouldCommit()) {
+            event.reindeer = reindeer;
+            event.waited = waited;
+            event.commit();
+        }
+    }
+
+    /**
+     * Called by the coordination engines where the last elf of a group arrives
+     */
+    static void elfGroupFormed(int elf, int groupSize) {
+        if (!FlightRecorder.isInitialized() || !Types.ELF_GROUP_FORMED.isEnabled()) {
+            return;
+        }
+        ElfGroupFormed event = new ElfGroupFormed();
+        if (event.shouldCommit()) {
+            event.elf = elf;
+            event.groupSize = groupSize;
+            event.commit();
+        }
+    }
+}
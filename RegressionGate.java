@@ -0,0 +1,242 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Santa Claus Problem - Performance Regression Gate
+ *
+ * Compares the engines' performance with a committed baseline and fails
+ * (exit code 1) when it has clearly got worse:
+ *
+ * - groups_per_second.<engine> - elf groups formed and released per second
+ *   with no sleeps (GroupFormationBenchmark, one group of elves)
+ * - wakeup_p99_us.<engine>     - p99 of the time from the ninth reindeer
+ *   arriving to Santa being awake (WakeupLatencyBenchmark)
+ *
+ * Every metric is sampled over several iterations, so both the baseline and
+ * the current run have a mean and a standard deviation. The change from the
+ * baseline is judged on its 95% confidence interval (Welch's t interval for
+ * the difference of two means): a metric fails only when the whole interval
+ * is worse than the tolerance, i.e. the throughput has dropped, or the p99
+ * risen, by more than the tolerance even in the most favourable reading of
+ * the noise. A single slow iteration cannot fail the gate on its own.
+ *
+ * The tolerance is stored in the baseline file and can be overridden with
+ * --tolerance. Baselines depend on the machine: record one with --record on
+ * the machine that runs the gate and commit it.
+ *
+ * Usage: java RegressionGate [--record] [--baseline=<file>] [--tolerance=<fraction>] [--iterations=<n>]
+ */
+public class RegressionGate {
+    private static final String DEFAULT_BASELINE = "perf-baseline.properties";
+    private static final double DEFAULT_TOLERANCE = 0.10;
+    private static final int DEFAULT_ITERATIONS = 8;
+
+    private static final String[] THROUGHPUT_ENGINES = {"monitor", "condition", "lockfree", "phaser"};
+    private static final String[] WAKEUP_ENGINES = {"monitor", "condition", "lockfree"};
+    private static final int ELF_GROUP_SIZE = 3;
+    private static final long ITERATION_TIME = 300; // milliseconds
+    private static final int WARMUP_ITERATIONS = 2;
+    private static final int WAKEUP_WARMUP = 200;
+    private static final int WAKEUP_SAMPLES = 500;
+
+    // Two-sided 95% quantiles of Student's t for 1 to 30 degrees of freedom
+    private static final double[] T_975 = {
+        12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+        2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+        2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042,
+    };
+
+    /**
+     * Mean, standard deviation and sample count of one metric
+     */
+    static class Sample {
+        final double mean;
+        final double sd;
+        final int n;
+
+        Sample(double mean, double sd, int n) {
+            this.mean = mean;
+            this.sd = sd;
+            this.n = n;
+        }
+
+        static Sample of(double[] values) {
+            double sum = 0;
+            for (double value : values) {
+                sum += value;
+            }
+            double mean = sum / values.length;
+            double squares = 0;
+            for (double value : values) {
+                squares += (value - mean) * (value - mean);
+            }
+            return new Sample(mean, values.length > 1 ? Math.sqrt(squares / (values.length - 1)) : 0, values.length);
+        }
+    }
+
+    /**
+     * One measured metric: its name, whether higher is better, and the sample
+     */
+    private static class Metric {
+        final String name;
+        final boolean higherIsBetter;
+        final Sample sample;
+
+        Metric(String name, boolean higherIsBetter, Sample sample) {
+            this.name = name;
+            this.higherIsBetter = higherIsBetter;
+            this.sample = sample;
+        }
+    }
+
+    static double t975(double degreesOfFreedom) {
+        int df = (int) Math.floor(degreesOfFreedom);
+        if (df < 1) {
+            return T_975[0];
+        }
+        return df <= T_975.length ? T_975[df - 1] : 1.960;
+    }
+
+    /**
+     * 95% confidence interval {low, high} of current.mean - baseline.mean (Welch)
+     */
+    static double[] differenceInterval(Sample baseline, Sample current) {
+        double vb = baseline.sd * baseline.sd / baseline.n;
+        double vc = current.sd * current.sd / current.n;
+        double se = Math.sqrt(vb + vc);
+        double df = se == 0 ? Double.MAX_VALUE : (vb + vc) * (vb + vc)
+                / (vb * vb / Math.max(1, baseline.n - 1) + vc * vc / Math.max(1, current.n - 1));
+        double diff = current.mean - baseline.mean;
+        double half = t975(df) * se;
+        return new double[] {diff - half, diff + half};
+    }
+
+    private static List<Metric> measure(int iterations) throws InterruptedException {
+        List<Metric> metrics = new ArrayList<>();
+        for (String engine : THROUGHPUT_ENGINES) {
+            double[] rates = GroupFormationBenchmark.measure(engine, ELF_GROUP_SIZE, ELF_GROUP_SIZE,
+                    WARMUP_ITERATIONS, iterations, ITERATION_TIME);
+            metrics.add(new Metric("groups_per_second." + engine, true, Sample.of(rates)));
+            System.out.print(".");
+        }
+        for (String engine : WAKEUP_ENGINES) {
+            double[] p99s = new double[iterations];
+            for (int i = 0; i < iterations; i++) {
+                LatencyHistogram.Snapshot latencies = WakeupLatencyBenchmark.measure(engine,
+                        NorthPoleCoordinator.Group.REINDEER, WAKEUP_WARMUP, WAKEUP_SAMPLES, 0).snapshot();
+                p99s[i] = latencies.percentile(0.99) / 1e3;
+            }
+            metrics.add(new Metric("wakeup_p99_us." + engine, false, Sample.of(p99s)));
+            System.out.print(".");
+        }
+        System.out.println();
+        return metrics;
+    }
+
+    private static void record(Path file, List<Metric> metrics, double tolerance) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file))) {
+            out.println("# Santa Claus Problem - performance baseline for RegressionGate");
+            out.println("# Recorded with: java RegressionGate --record (machine dependent, re-record on the gate's machine)");
+            out.println("tolerance=" + tolerance);
+            for (Metric metric : metrics) {
+                out.println(metric.name + ".mean=" + metric.sample.mean);
+                out.println(metric.name + ".sd=" + metric.sample.sd);
+                out.println(metric.name + ".n=" + metric.sample.n);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        boolean recordBaseline = false;
+        Path baselineFile = Paths.get(DEFAULT_BASELINE);
+        Double tolerance = null;
+        int iterations = DEFAULT_ITERATIONS;
+        for (String arg : args) {
+            if (arg.equals("--record")) {
+                recordBaseline = true;
+            } else if (arg.startsWith("--baseline=")) {
+                baselineFile = Paths.get(arg.substring("--baseline=".length()));
+            } else if (arg.startsWith("--tolerance=")) {
+                tolerance = Double.parseDouble(arg.substring("--tolerance=".length()));
+            } else if (arg.startsWith("--iterations=")) {
+                iterations = Integer.parseInt(arg.substring("--iterations=".length()));
+            } else {
+                System.err.println("Unknown option: " + arg);
+                System.exit(1);
+            }
+        }
+
+        Properties baseline = new Properties();
+        if (!recordBaseline) {
+            if (!Files.exists(baselineFile)) {
+                System.err.println("No baseline at " + baselineFile + ", record one with --record");
+                System.exit(1);
+            }
+            try (Reader in = Files.newBufferedReader(baselineFile)) {
+                baseline.load(in);
+            }
+            if (tolerance == null) {
+                tolerance = Double.parseDouble(baseline.getProperty("tolerance", String.valueOf(DEFAULT_TOLERANCE)));
+            }
+        } else if (tolerance == null) {
+            tolerance = DEFAULT_TOLERANCE;
+        }
+
+        System.out.println("============================================================");
+        System.out.println("PERFORMANCE REGRESSION GATE - " + iterations + " iterations per metric, tolerance "
+                + Math.round(tolerance * 100) + "%");
+        System.out.println("============================================================");
+        List<Metric> metrics = measure(iterations);
+
+        if (recordBaseline) {
+            record(baselineFile, metrics, tolerance);
+            for (Metric metric : metrics) {
+                System.out.printf("  %-30s %12.1f +- %.1f%n", metric.name, metric.sample.mean, metric.sample.sd);
+            }
+            System.out.println("============================================================");
+            System.out.println("Baseline written to " + baselineFile);
+            System.out.println("============================================================");
+            return;
+        }
+
+        System.out.printf("  %-30s %12s %12s %24s%n", "metric", "baseline", "current", "change (95% CI)");
+        int regressions = 0;
+        for (Metric metric : metrics) {
+            String mean = baseline.getProperty(metric.name + ".mean");
+            if (mean == null) {
+                System.out.printf("  %-30s %12s %12.1f %24s  new%n", metric.name, "-", metric.sample.mean, "");
+                continue;
+            }
+            Sample base = new Sample(Double.parseDouble(mean),
+                    Double.parseDouble(baseline.getProperty(metric.name + ".sd", "0")),
+                    Integer.parseInt(baseline.getProperty(metric.name + ".n", "1")));
+            double[] interval = differenceInterval(base, metric.sample);
+            double low = interval[0] / base.mean;
+            double high = interval[1] / base.mean;
+
+            // Worse than the tolerance across the whole interval
+            boolean regressed = metric.higherIsBetter ? high < -tolerance : low > tolerance;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("  %-30s %12.1f %12.1f %+7.1f%% [%+6.1f%%, %+6.1f%%]  %s%n", metric.name, base.mean,
+                    metric.sample.mean, (metric.sample.mean - base.mean) / base.mean * 100, low * 100, high * 100,
+                    regressed ? "REGRESSION" : "ok");
+        }
+
+        System.out.println("============================================================");
+        System.out.println(regressions == 0 ? "PASS: no regression beyond " + Math.round(tolerance * 100) + "%"
+                : "FAIL: " + regressions + " metric(s) regressed beyond " + Math.round(tolerance * 100) + "%");
+        System.out.println("============================================================");
+        if (regressions > 0) {
+            System.exit(1);
+        }
+    }
+}
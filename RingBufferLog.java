@@ -0,0 +1,211 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Santa Claus Problem - Asynchronous Ring Buffer Log
+ *
+ * Logging from inside reindeerLock or elfLock used to mean console I/O
+ * inside the critical section, since PrintStream is synchronized. Here the
+ * actors only fill in a fixed-size record (time, event, actor, number) in a
+ * bounded multi-producer single-consumer ring and carry on. A background
+ * thread hands the records to one or more Writers (console text, the binary
+ * EventJournal) and flushes them in batches.
+ *
+ * Each slot has a sequence number: a producer claims a position with one
+ * getAndIncrement, waits until the slot's sequence says it is free, writes
+ * the record and publishes it by advancing the sequence. The consumer reads
+ * published slots in order and hands them back a full lap later. Records
+ * come out in the order their positions were claimed.
+ *
+ * When the ring is full a producer yields until the printer catches up
+ * rather than dropping lines.
+ */
+public class RingBufferLog implements NorthPoleLog {
+    private static final int DEFAULT_CAPACITY = 1 << 16;
+    // Records handed to the writers before they are flushed
+    private static final int BATCH_RECORDS = 1024;
+    private static final long IDLE_NANOS = 1_000_000;
+
+    /**
+     * Receives the records in order, always on the log thread
+     */
+    public interface Writer {
+        void write(long time, NorthPoleEvent event, int actor, int value) throws IOException;
+
+        /**
+         * End of a batch
+         */
+        void flush() throws IOException;
+
+        void close() throws IOException;
+    }
+
+    /**
+     * Writes records as the familiar console lines, encoded straight into a
+     * reusable byte buffer from the events' pre-encoded templates
+     */
+    public static class TextWriter implements Writer {
+        private final OutputStream out;
+        private final byte[] batch = new byte[BATCH_RECORDS * 64];
+        private int length = 0;
+
+        public TextWriter(OutputStream out) {
+            this.out = out;
+        }
+
+        public void write(long time, NorthPoleEvent event, int actor, int value) throws IOException {
+            if (length + event.maxEncodedLength() + 1 > batch.length) {
+                flush();
+            }
+            length = event.encodeTo(batch, length, actor, value);
+            batch[length++] = '\n';
+        }
+
+        public void flush() throws IOException {
+            if (length > 0) {
+                out.write(batch, 0, length);
+                out.flush();
+                length = 0;
+            }
+        }
+
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
+    private final SimClock clock;
+    private final Writer[] writers;
+
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final long[] times;
+    private final int[] events;
+    private final int[] actors;
+    private final int[] values;
+    private final AtomicLong tail = new AtomicLong();
+
+    private final Thread printer;
+    private volatile boolean idle = false;
+    private volatile boolean closed = false;
+
+    public RingBufferLog(SimClock clock, Writer... writers) {
+        this(clock, DEFAULT_CAPACITY, writers);
+    }
+
+    public RingBufferLog(SimClock clock, int capacity, Writer... writers) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ring capacity must be a power of two: " + capacity);
+        }
+        this.clock = clock;
+        this.writers = writers;
+        this.mask = capacity - 1;
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        this.times = new long[capacity];
+        this.events = new int[capacity];
+        this.actors = new int[capacity];
+        this.values = new int[capacity];
+
+        printer = new Thread(this::print, "north-pole-log");
+        printer.setDaemon(true);
+        printer.start();
+    }
+
+    public void event(NorthPoleEvent event, int actor, int value) {
+        if (closed) {
+            return;
+        }
+        long position = tail.getAndIncrement();
+        int slot = (int) position & mask;
+
+        // Ring full: wait for the printer to hand this slot back, unless it has already finished
+        while (sequences.get(slot) != position) {
+            if (closed && !printer.isAlive()) {
+                return;
+            }
+            Thread.yield();
+        }
+
+        times[slot] = clock.now();
+        events[slot] = event.ordinal();
+        actors[slot] = actor;
+        values[slot] = value;
+        sequences.lazySet(slot, position + 1);
+
+        if (idle) {
+            LockSupport.unpark(printer);
+        }
+    }
+
+    /**
+     * The thread that runs the writers
+     */
+    public Thread thread() {
+        return printer;
+    }
+
+    public void close() {
+        closed = true;
+        LockSupport.unpark(printer);
+        try {
+            printer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void print() {
+        try {
+            drain();
+            for (Writer writer : writers) {
+                writer.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Log writer failed, logging stopped: " + e);
+            closed = true;
+        }
+    }
+
+    private void drain() throws IOException {
+        NorthPoleEvent[] all = NorthPoleEvent.values();
+        long head = 0;
+        int batched = 0;
+        while (true) {
+            int slot = (int) head & mask;
+            if (sequences.get(slot) == head + 1) {
+                for (Writer writer : writers) {
+                    writer.write(times[slot], all[events[slot]], actors[slot], values[slot]);
+                }
+                sequences.lazySet(slot, head + mask + 1);
+                head++;
+                if (++batched < BATCH_RECORDS) {
+                    continue;
+                }
+            }
+
+            if (batched > 0) {
+                for (Writer writer : writers) {
+                    writer.flush();
+                }
+                batched = 0;
+                continue;
+            }
+
+            // Nothing published: finish once closed and every claimed slot is written, otherwise sleep
+            if (closed && head >= tail.get()) {
+                return;
+            }
+            idle = true;
+            if (sequences.get(slot) != head + 1 && !closed) {
+                LockSupport.parkNanos(this, IDLE_NANOS);
+            }
+            idle = false;
+        }
+    }
+}
@@ -8,80 +8,261 @@
  * - If both are waiting, reindeer have priority
  * - Santa helps one group at a time
  *
- * This implementation uses Java monitors (synchronized/wait/notify) for synchronization.
- * Monitors provide mutual exclusion and condition synchronization through built-in Java features.
- * 
- * Key synchronization objects:
- * 1. santaLock - Controls Santa's wake/sleep cycle
- * 2. reindeerLock - Protects reindeer counter and coordinates harness operations
- * 3. elfLock - Protects elf counters and coordinates consultations
+ * The actors below only own the timing of the simulation. All synchronization
+ * lives behind NorthPoleCoordinator, chosen at startup with --engine=<name>:
+ * - monitor   - Java monitors (synchronized/wait/notify), the default
+ * - condition - ReentrantLock with one Condition per waiting point
+ * - lockfree  - one CAS-driven state word, LockSupport parking
+ * - phaser    - one tiered Phaser barrier per sleigh team and elf group
+ *
+ * --teams=<k> runs a herd of k sleigh teams of 9 reindeer each. Santa still
+ * delivers with one team at a time.
+ * --harness=parallel lets the monitor engine harness the team concurrently
+ * (see HarnessBenchmark).
+ * --elves=queue lets the monitor engine queue elves without taking elfLock.
+ * --threads=virtual runs every actor on a virtual thread (JDK 21+). The
+ * monitor engine pins carrier threads inside synchronized, so virtual mode
+ * defaults to the lockfree engine and rejects monitor.
+ * --num-elves=<n> overrides the number of elves, e.g. 1000000 in virtual mode.
+ * --clock=scaled:<k> runs the simulation k times faster than wall time and
+ * --clock=virtual skips all waiting (see SimClock).
+ * --time=<ms> sets the simulated length of the run (30 s by default).
+ * --config=<name|file> loads the team size, number of elves, group size and
+ * simulated length from a test case in test_cases.json or a JSON file (see
+ * NorthPoleConfig); --num-elves and --time still override it.
+ * --seed=<n> fixes the master seed. Every reindeer and elf draws from its own
+ * SplittableRandom split off the master in a fixed order, so actors never
+ * contend on a shared generator and each actor's vacations and toy work
+ * repeat exactly for the same seed. The run as a whole only repeats as far
+ * as the scheduler lets it: actors that wake at the same simulated moment,
+ * or are woken together, get to the coordinator in whatever order they are
+ * scheduled. With --clock=virtual the condition, lockfree and phaser
+ * engines replay a seed almost every time, but not always. The monitor
+ * engine lets the elves it wakes race for places in a consultation, so its
+ * runs hardly ever repeat.
+ * --log=async (the default) queues log records in a RingBufferLog so no
+ * actor formats text or waits on the console while holding a lock;
+ * --log=console prints every line directly and --log=none prints nothing.
+ * --journal=<dir> also records every event in a binary EventJournal.
+ * --profile-locks times every acquisition and wait of the monitor engine's
+ * santaLock, reindeerLock and elfLock and prints them with the statistics
+ * (see ProfiledMonitor).
+ *
+ * Once warmed up, the actor loops allocate nothing with the monitor or
+ * lockfree engine, the wall or scaled clock and the async log: the work
+ * handed to the coordinator is created once per actor and log records are
+ * primitives (see AllocationCheck).
+ *
+ * Every protocol phase is also a JDK Flight Recorder event (see ProtocolEvents).
+ *
+ * While it runs, main publishes the live NorthPoleCounters (deliveries,
+ * consultations, waiting elves and reindeer, Santa's state and rates) as the
+ * platform MBean NorthPole:type=SantaClaus, e.g. for jconsole.
+ * --metrics-port=<port> also serves them, with the wait-time histograms, in
+ * Prometheus text format on http://localhost:<port>/metrics (see MetricsServer).
+ *
+ * Each SantaClaus instance is an isolated North Pole, so many of them can run
+ * side by side (see MonteCarlo).
+ *
+ * Usage: java SantaClaus [--engine=monitor|condition|lockfree|phaser] [--teams=<k>]
+ *                        [--harness=serial|parallel] [--elves=monitor|queue]
+ *                        [--threads=platform|virtual] [--config=<name|file>] [--num-elves=<n>]
+ *                        [--clock=wall|scaled:<k>|virtual] [--time=<ms>] [--seed=<n>]
+ *                        [--log=async|console|none] [--journal=<dir>]
+ *                        [--profile-locks] [--metrics-port=<port>]
  */
 
-import java.util.Random;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.lang.reflect.Method;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import javax.management.JMException;
 
 public class SantaClaus {
-    // Constants
-    private static final int NUM_REINDEER = 9;
-    private static final int NUM_ELVES = 10;
-    private static final int ELF_GROUP_SIZE = 3;
-    private static final int SIMULATION_TIME = 30000; // milliseconds
-
-    // Monitor locks
-    private static final Object santaLock = new Object();
-    private static final Object reindeerLock = new Object();
-    private static final Object elfLock = new Object();
-
-    // Counters
-    private static int reindeerCount = 0;
-    private static int elfCount = 0;
-    private static int waitingElves = 0;
-    
-    // Flags to indicate which group is ready
-    private static boolean reindeerReady = false;
-    private static boolean elvesReady = false;
-    
-    // Flags to control when workers can proceed
-    private static boolean reindeerCanHarness = false;
-    private static boolean elvesCanConsult = false;
-    private static int harnessedCount = 0;
-    private static int consultedCount = 0;
-
-    // Statistics
-    private static int deliveries = 0;
-    private static int elfConsultations = 0;
-
-    // Random number generator
-    private static Random random = new Random();
+    // Coordination engine
+    private final NorthPoleCoordinator coordinator;
+
+    // Simulated time
+    private final SimClock clock;
+
+    // Where the actors report what they are doing
+    private final NorthPoleLog log;
+
+    // Master random stream, split once per actor
+    private final SplittableRandom random;
+
+    // Actors
+    private final int herdSize;
+    private final int numElves;
+    private final int elfGroupSize;
+    private final boolean virtual;
+    private final List<Thread> actors;
+
+    // Per-actor tallies, indexed by id - 1. An elf counts its own
+    // consultations; Santa counts a trip for every reindeer harnessed for a
+    // delivery once the delivery is done.
+    private final int[] reindeerTrips;
+    private final int[] elfHelps;
+
+    // Reindeer harnessed for the delivery Santa is preparing, indexed by id - 1
+    private final boolean[] harnessed;
+
+    // Statistics, readable while the simulation runs
+    private final NorthPoleCounters counters;
+
+    // Wait times in simulated nanoseconds
+    private final LatencyHistogram elfWaits = new LatencyHistogram();
+    private final LatencyHistogram reindeerWaits = new LatencyHistogram();
+    private final LatencyHistogram santaSleeps = new LatencyHistogram();
+
+    public SantaClaus(NorthPoleCoordinator coordinator, SimClock clock, NorthPoleLog log, long seed,
+                      int herdSize, int numElves, int elfGroupSize, boolean virtual) {
+        this.coordinator = coordinator;
+        this.clock = clock;
+        this.log = log;
+        this.random = new SplittableRandom(seed);
+        this.herdSize = herdSize;
+        this.numElves = numElves;
+        this.elfGroupSize = elfGroupSize;
+        this.virtual = virtual;
+        this.actors = new ArrayList<>(1 + herdSize + numElves);
+        this.reindeerTrips = new int[herdSize];
+        this.elfHelps = new int[numElves];
+        this.harnessed = new boolean[herdSize];
+        this.counters = new NorthPoleCounters(clock);
+
+        // Event classes loaded before the clock runs, not by the first actor
+        ProtocolEvents.initialize();
+    }
+
+    public int deliveries() {
+        return (int) counters.getDeliveries();
+    }
+
+    public int elfConsultations() {
+        return (int) counters.getElfConsultations();
+    }
+
+    /**
+     * Live counters, also published over JMX by main
+     */
+    public NorthPoleCounters counters() {
+        return counters;
+    }
+
+    /**
+     * How long elves wait from asking for help until their consultation starts
+     */
+    public LatencyHistogram elfWaits() {
+        return elfWaits;
+    }
+
+    /**
+     * How long reindeer wait from returning until they are harnessed
+     */
+    public LatencyHistogram reindeerWaits() {
+        return reindeerWaits;
+    }
+
+    /**
+     * How long Santa sleeps between jobs
+     */
+    public LatencyHistogram santaSleeps() {
+        return santaSleeps;
+    }
+
+    public int herdSize() {
+        return herdSize;
+    }
+
+    /**
+     * Min, mean and max of deliveries per reindeer, exact once the actors have stopped
+     */
+    public String reindeerTripSpread() {
+        return spread(reindeerTrips);
+    }
+
+    /**
+     * Min, mean and max of consultations per elf, exact once the actors have stopped
+     */
+    public String elfHelpSpread() {
+        return spread(elfHelps);
+    }
+
+    private static String spread(int[] counts) {
+        if (counts.length == 0) {
+            return "none";
+        }
+        int min = Integer.MAX_VALUE;
+        int max = 0;
+        long sum = 0;
+        for (int count : counts) {
+            min = Math.min(min, count);
+            max = Math.max(max, count);
+            sum += count;
+        }
+        return String.format("min %d  mean %.2f  max %d", min, (double) sum / counts.length, max);
+    }
+
+    /**
+     * Santa, then the herd, then the elves
+     */
+    public List<Thread> threads() {
+        return Collections.unmodifiableList(actors);
+    }
 
     /**
-     * Santa thread - waits to be woken by reindeer or elves using monitors
+     * Santa thread - waits to be woken by reindeer or elves
      */
-    static class Santa extends Thread {
+    class Santa implements Runnable {
+        // Created once so the work handed to the coordinator allocates nothing per cycle
+        private final NorthPoleCoordinator.GroupWork prepareDelivery = () -> {
+            ProtocolEvents.Delivery event = ProtocolEvents.beginDelivery();
+            clock.sleep(500); // Simulate delivery preparation
+            int delivery = (int) counters.delivered();
+            // Every harness has finished before Santa's work runs, and the next team waits for Santa
+            for (int i = 0; i < harnessed.length; i++) {
+                if (harnessed[i]) {
+                    harnessed[i] = false;
+                    reindeerTrips[i]++;
+                }
+            }
+            log.event(NorthPoleEvent.SANTA_DELIVERING, 0, delivery);
+            if (event != null && event.shouldCommit()) {
+                event.delivery = delivery;
+                event.commit();
+            }
+        };
+        private final NorthPoleCoordinator.GroupWork finishConsultation = () -> {
+            clock.sleep(300); // Simulate consultation
+            log.event(NorthPoleEvent.SANTA_CONSULTED, 0, (int) counters.consulted());
+        };
+
         public void run() {
-            System.out.println("SANTA: Starting shift at the North Pole");
+            log.event(NorthPoleEvent.SANTA_STARTED, 0, 0);
 
             while (!Thread.interrupted()) {
                 try {
-                    synchronized (santaLock) {
-                        // Wait until either reindeer or elves are ready
-                        while (!reindeerReady && !elvesReady) {
-                            santaLock.wait();
-                        }
+                    // Wait until either reindeer or elves are ready (reindeer have priority)
+                    counters.santa(NorthPoleCounters.SantaState.SLEEPING);
+                    ProtocolEvents.SantaWake event = ProtocolEvents.beginSantaWake();
+                    long asleep = clock.nanoTime();
+                    NorthPoleCoordinator.Group group = coordinator.awaitSantaWork();
+                    santaSleeps.record(clock.nanoTime() - asleep);
+                    if (event != null && event.shouldCommit()) {
+                        event.group = group.name();
+                        event.commit();
                     }
 
-                    // Check if reindeer are ready (priority) - check outside santaLock
-                    synchronized (reindeerLock) {
-                        if (reindeerReady) {
-                            handleReindeer();
-                            continue; // Go back to waiting
-                        }
-                    }
-
-                    // If no reindeer, check elves
-                    synchronized (elfLock) {
-                        if (elvesReady) {
-                            handleElves();
-                        }
+                    if (group == NorthPoleCoordinator.Group.REINDEER) {
+                        handleReindeer();
+                    } else {
+                        handleElves();
                     }
 
                 } catch (InterruptedException e) {
@@ -91,116 +272,62 @@ public class SantaClaus {
         }
 
         private void handleReindeer() throws InterruptedException {
-            System.out.println("\nSANTA: Ho Ho Ho! All reindeer are back!");
-            System.out.println("SANTA: Preparing sleigh for Christmas delivery...");
-
-            // Reset flags and counters
-            reindeerReady = false;
-            reindeerCount = 0;
-            harnessedCount = 0;
-
-            // Signal all reindeer to proceed with harnessing
-            reindeerCanHarness = true;
-            reindeerLock.notifyAll();
+            log.event(NorthPoleEvent.SANTA_WOKEN_BY_REINDEER, 0, 0);
+            counters.santa(NorthPoleCounters.SantaState.DELIVERING);
 
-            // Wait for all reindeer to finish harnessing
-            while (harnessedCount < NUM_REINDEER) {
-                reindeerLock.wait();
-            }
-
-            reindeerCanHarness = false;
-            
-            // Wake up any reindeer that returned late and are waiting to start counting again
-            reindeerLock.notifyAll();
-
-            Thread.sleep(500); // Simulate delivery preparation
-            deliveries++;
-            System.out.println("SANTA: Sleigh ready! Delivering toys! (Delivery #" + deliveries + ")");
-            System.out.println("SANTA: Going back to sleep...\n");
+            coordinator.releaseGroup(NorthPoleCoordinator.Group.REINDEER, prepareDelivery);
         }
 
         private void handleElves() throws InterruptedException {
-            System.out.println("\nSANTA: Three elves need help!");
-            System.out.println("SANTA: Meeting with elves...");
-
-            // Reset flags and counters - but keep elfCount until after signaling
-            elvesReady = false;
-            consultedCount = 0;
-
-            // Signal the three elves to proceed with consultation
-            elvesCanConsult = true;
-            elfLock.notifyAll();
-
-            // Wait for all three elves to finish consultation
-            while (consultedCount < ELF_GROUP_SIZE) {
-                elfLock.wait();
-            }
+            log.event(NorthPoleEvent.SANTA_WOKEN_BY_ELVES, 0, elfGroupSize);
+            counters.santa(NorthPoleCounters.SantaState.CONSULTING);
 
-            // Now reset elfCount after all elves are done
-            elfCount = 0;
-            elvesCanConsult = false;
-
-            Thread.sleep(300); // Simulate consultation
-            elfConsultations++;
-            System.out.println("SANTA: Consultation complete! (Session #" + elfConsultations + ")");
-            System.out.println("SANTA: Going back to sleep...\n");
+            coordinator.releaseGroup(NorthPoleCoordinator.Group.ELVES, finishConsultation);
         }
     }
 
     /**
-     * Reindeer thread - returns from vacation and gets harnessed using monitors
+     * Reindeer thread - returns from vacation and gets harnessed
      */
-    static class Reindeer extends Thread {
+    class Reindeer implements Runnable {
         private int id;
+        private final SplittableRandom random;
+
+        private long returnedAt;
+        private final NorthPoleCoordinator.GroupWork harness = () -> {
+            long waited = clock.nanoTime() - returnedAt;
+            counters.reindeerWaiting(-1);
+            reindeerWaits.record(waited);
+            harnessed[id - 1] = true;
+            ProtocolEvents.reindeerArrival(id, waited);
+
+            ProtocolEvents.Harness event = ProtocolEvents.beginHarness();
+            log.event(NorthPoleEvent.REINDEER_HARNESSING, id, 0);
+            clock.sleep(100);
+            log.event(NorthPoleEvent.REINDEER_HARNESSED, id, 0);
+            if (event != null && event.shouldCommit()) {
+                event.reindeer = id;
+                event.commit();
+            }
+        };
 
-        public Reindeer(int id) {
+        public Reindeer(int id, SplittableRandom random) {
             this.id = id;
+            this.random = random;
         }
 
         public void run() {
             while (!Thread.interrupted()) {
                 try {
                     // Vacation in the tropics
-                    Thread.sleep(2000 + random.nextInt(3000));
-                    System.out.println("Reindeer " + id + ": Returning from vacation");
-
-                    synchronized (reindeerLock) {
-                        // Wait until there's no active delivery and we can join the counting
-                        while (reindeerCanHarness || reindeerCount >= NUM_REINDEER) {
-                            reindeerLock.wait();
-                        }
-
-                        reindeerCount++;
-                        boolean isPartOfGroup = (reindeerCount <= NUM_REINDEER);
-
-                        if (reindeerCount == NUM_REINDEER) {
-                            System.out.println("Reindeer " + id + ": I'm the last one! Waking Santa!");
-                            
-                            // Wake Santa
-                            synchronized (santaLock) {
-                                reindeerReady = true;
-                                santaLock.notify();
-                            }
-                        }
-
-                        // Only the first 9 reindeer wait for Santa
-                        if (isPartOfGroup) {
-                            // Wait for Santa to signal harnessing can begin
-                            while (!reindeerCanHarness) {
-                                reindeerLock.wait();
-                            }
-
-                            // Harness operation
-                            System.out.println("Reindeer " + id + ": Getting harnessed to sleigh");
-                            Thread.sleep(100);
-                            System.out.println("Reindeer " + id + ": Harnessed! Ready to deliver toys!");
-
-                            harnessedCount++;
-                            if (harnessedCount == NUM_REINDEER) {
-                                reindeerLock.notify(); // Wake Santa
-                            }
-                        }
-                        // If not part of group, just continue and go back on vacation
+                    clock.sleep(2000 + random.nextInt(3000));
+                    log.event(NorthPoleEvent.REINDEER_RETURNED, id, 0);
+                    returnedAt = clock.nanoTime();
+                    counters.reindeerWaiting(1);
+
+                    // Only the first 9 reindeer get harnessed, the rest go back on vacation
+                    if (!coordinator.arriveReindeer(id, harness)) {
+                        counters.reindeerWaiting(-1);
                     }
 
                 } catch (InterruptedException e) {
@@ -211,63 +338,42 @@ public class SantaClaus {
     }
 
     /**
-     * Elf thread - occasionally needs Santa's help using monitors
+     * Elf thread - occasionally needs Santa's help
      */
-    static class Elf extends Thread {
+    class Elf implements Runnable {
         private int id;
+        private final SplittableRandom random;
+
+        private long askedAt;
+        private final NorthPoleCoordinator.GroupWork consultation = () -> {
+            counters.elfWaiting(-1);
+            elfWaits.record(clock.nanoTime() - askedAt);
+            elfHelps[id - 1]++;
+            ProtocolEvents.Consultation event = ProtocolEvents.beginConsultation();
+            log.event(NorthPoleEvent.ELF_CONSULTING, id, 0);
+            clock.sleep(100);
+            log.event(NorthPoleEvent.ELF_HELPED, id, 0);
+            if (event != null && event.shouldCommit()) {
+                event.elf = id;
+                event.commit();
+            }
+        };
 
-        public Elf(int id) {
+        public Elf(int id, SplittableRandom random) {
             this.id = id;
+            this.random = random;
         }
 
         public void run() {
             while (!Thread.interrupted()) {
                 try {
                     // Work on toys
-                    Thread.sleep(1000 + random.nextInt(3000));
-
-                    boolean isInGroup = false;
-
-                    synchronized (elfLock) {
-                        waitingElves++;
-
-                        if (waitingElves == ELF_GROUP_SIZE) {
-                            System.out.println("Elf " + id + ": We have 3 elves waiting! Waking Santa!");
-                            elfCount = ELF_GROUP_SIZE;
-                            waitingElves = 0;
-
-                            // Wake Santa
-                            synchronized (santaLock) {
-                                elvesReady = true;
-                                santaLock.notify();
-                            }
-                        } else {
-                            System.out.println("Elf " + id + ": Waiting for help (Total waiting: " + waitingElves + ")");
-                        }
-
-                        // Wait for Santa to signal consultation can begin
-                        while (elfCount > 0 && !elvesCanConsult) {
-                            elfLock.wait();
-                        }
-
-                        // Check if this elf is part of the group being serviced
-                        if (elvesCanConsult && consultedCount < ELF_GROUP_SIZE) {
-                            isInGroup = true;
-                            consultedCount++; // Reserve spot
-                        }
-                    }
+                    clock.sleep(1000 + random.nextInt(3000));
 
-                    // Perform consultation outside the lock if part of group
-                    if (isInGroup) {
-                        System.out.println("Elf " + id + ": Getting help from Santa...");
-                        Thread.sleep(100);
-                        System.out.println("Elf " + id + ": Problem solved! Back to work!");
-
-                        synchronized (elfLock) {
-                            if (consultedCount == ELF_GROUP_SIZE) {
-                                elfLock.notify(); // Wake Santa
-                            }
-                        }
+                    askedAt = clock.nanoTime();
+                    counters.elfWaiting(1);
+                    if (!coordinator.arriveElf(id, consultation)) {
+                        counters.elfWaiting(-1);
                     }
 
                 } catch (InterruptedException e) {
@@ -277,52 +383,258 @@ public class SantaClaus {
         }
     }
 
-    public static void main(String[] args) {
+    /**
+     * Start an actor on a daemon platform thread or on a virtual thread.
+     * Virtual threads are created reflectively so the file still compiles on JDK 17.
+     */
+    private Thread startActor(Runnable actor) {
+        Thread thread;
+        if (virtual) {
+            try {
+                Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+                Method unstarted = Class.forName("java.lang.Thread$Builder").getMethod("unstarted", Runnable.class);
+                thread = (Thread) unstarted.invoke(builder, actor);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Virtual threads need JDK 21 or newer", e);
+            }
+        } else {
+            thread = new Thread(actor);
+            thread.setDaemon(true);
+        }
+        clock.register(thread);
+        thread.start();
+        actors.add(thread);
+        return thread;
+    }
+
+    /**
+     * Start Santa, the herd and the elves
+     */
+    public void start() {
+        counters.started();
+        startActor(new Santa());
+        for (int i = 0; i < herdSize; i++) {
+            startActor(new Reindeer(i + 1, random.split()));
+        }
+        for (int i = 0; i < numElves; i++) {
+            startActor(new Elf(i + 1, random.split()));
+        }
+    }
+
+    /**
+     * Interrupt every actor and wait for it to finish
+     */
+    public void stop() throws InterruptedException {
+        for (Thread t : actors) {
+            t.interrupt();
+        }
+        for (Thread t : actors) {
+            t.join();
+        }
+        clock.close();
+    }
+
+    /**
+     * Run a whole simulation of the given simulated length
+     */
+    public void run(long simulationTime) throws InterruptedException {
+        start();
+        try {
+            clock.sleep(simulationTime);
+        } finally {
+            stop();
+        }
+    }
+
+    /**
+     * Number of elf threads still alive (the first actors after Santa and the herd)
+     */
+    public int elvesAlive() {
+        int alive = 0;
+        for (Thread t : actors.subList(1 + herdSize, actors.size())) {
+            if (t.isAlive()) {
+                alive++;
+            }
+        }
+        return alive;
+    }
+
+    public static void main(String[] args) throws IOException {
+        // The scenario is loaded first so that --num-elves and --time override it wherever they appear
+        NorthPoleConfig config = NorthPoleConfig.DEFAULT;
+        for (String arg : args) {
+            if (arg.startsWith("--config=")) {
+                String scenario = arg.substring("--config=".length());
+                try {
+                    config = NorthPoleConfig.load(scenario);
+                } catch (IOException | IllegalArgumentException e) {
+                    System.err.println("Could not load config " + scenario + ": " + e.getMessage());
+                    System.exit(1);
+                }
+            }
+        }
+
+        String engine = null;
+        int teams = 1;
+        int numElves = config.numElves;
+        boolean parallelHarness = false;
+        boolean elfQueue = false;
+        boolean virtual = false;
+        String clockMode = "wall";
+        long simulationTime = config.simulationTime;
+        long seed = System.nanoTime();
+        String logMode = "async";
+        String journal = null;
+        boolean profileLocks = false;
+        int metricsPort = -1;
+        for (String arg : args) {
+            if (arg.startsWith("--engine=")) {
+                engine = arg.substring("--engine=".length());
+            } else if (arg.startsWith("--teams=")) {
+                teams = Integer.parseInt(arg.substring("--teams=".length()));
+            } else if (arg.equals("--harness=parallel") || arg.equals("--harness=serial")) {
+                parallelHarness = arg.equals("--harness=parallel");
+            } else if (arg.equals("--elves=queue") || arg.equals("--elves=monitor")) {
+                elfQueue = arg.equals("--elves=queue");
+            } else if (arg.equals("--threads=virtual") || arg.equals("--threads=platform")) {
+                virtual = arg.equals("--threads=virtual");
+            } else if (arg.startsWith("--config=")) {
+                // Loaded above
+            } else if (arg.startsWith("--num-elves=")) {
+                numElves = Integer.parseInt(arg.substring("--num-elves=".length()));
+            } else if (arg.startsWith("--clock=")) {
+                clockMode = arg.substring("--clock=".length());
+            } else if (arg.startsWith("--time=")) {
+                simulationTime = Long.parseLong(arg.substring("--time=".length()));
+            } else if (arg.startsWith("--seed=")) {
+                seed = Long.parseLong(arg.substring("--seed=".length()));
+            } else if (arg.equals("--log=async") || arg.equals("--log=console") || arg.equals("--log=none")) {
+                logMode = arg.substring("--log=".length());
+            } else if (arg.startsWith("--journal=")) {
+                journal = arg.substring("--journal=".length());
+            } else if (arg.equals("--profile-locks")) {
+                profileLocks = true;
+            } else if (arg.startsWith("--metrics-port=")) {
+                metricsPort = Integer.parseInt(arg.substring("--metrics-port=".length()));
+            } else {
+                System.err.println("Unknown option: " + arg);
+                System.exit(1);
+            }
+        }
+        if (engine == null) {
+            engine = virtual ? "lockfree" : "monitor";
+        } else if (virtual && engine.equals("monitor")) {
+            System.err.println("The monitor engine pins carrier threads, use condition, lockfree or phaser with --threads=virtual");
+            System.exit(1);
+        }
+        if (profileLocks && !engine.equals("monitor")) {
+            System.err.println("--profile-locks profiles the monitor engine's locks, use --engine=monitor");
+            System.exit(1);
+        }
+        if (journal != null && logMode.equals("console")) {
+            System.err.println("The journal is written from the log thread, use --log=async or --log=none with --journal");
+            System.exit(1);
+        }
+        SimClock clock = SimClock.create(clockMode);
+        List<RingBufferLog.Writer> writers = new ArrayList<>();
+        if (logMode.equals("async")) {
+            writers.add(new RingBufferLog.TextWriter(System.out));
+        }
+        if (journal != null) {
+            writers.add(new EventJournal(Paths.get(journal)));
+        }
+        NorthPoleLog log = logMode.equals("console") ? NorthPoleLog.CONSOLE
+                : writers.isEmpty() ? NorthPoleLog.SILENT
+                : new RingBufferLog(clock, writers.toArray(new RingBufferLog.Writer[0]));
+        NorthPoleCoordinator coordinator = NorthPoleCoordinator.create(engine, config.numReindeer, numElves,
+                config.elfGroupSize, parallelHarness, elfQueue, profileLocks, clock, log);
+        int herdSize = config.numReindeer * teams;
+        SantaClaus northPole = new SantaClaus(coordinator, clock, log, seed,
+                herdSize, numElves, config.elfGroupSize, virtual);
+        try {
+            northPole.counters().register();
+        } catch (JMException e) {
+            System.err.println("Could not register the JMX counters: " + e);
+        }
+
         System.out.println("============================================================");
         System.out.println("SANTA CLAUS PROBLEM - JAVA IMPLEMENTATION");
         System.out.println("============================================================");
-        System.out.println("Configuration:");
-        System.out.println("  - Number of Reindeer: " + NUM_REINDEER);
-        System.out.println("  - Number of Elves: " + NUM_ELVES);
-        System.out.println("  - Elves per consultation group: " + ELF_GROUP_SIZE);
-        System.out.println("  - Synchronization: Java Monitors (synchronized/wait/notify)");
+        System.out.println("Configuration"
+                + (config == NorthPoleConfig.DEFAULT ? "" : " (" + config.name + ")") + ":");
+        System.out.println("  - Number of Reindeer: " + herdSize
+                + (teams > 1 ? " (" + teams + " sleigh teams of " + config.numReindeer + ")" : ""));
+        System.out.println("  - Number of Elves: " + numElves);
+        System.out.println("  - Elves per consultation group: " + config.elfGroupSize);
+        System.out.println("  - Synchronization: " + coordinator.description());
+        System.out.println("  - Threads: " + (virtual ? "virtual" : "platform"));
+        System.out.println("  - Clock: " + clock.description() + ", " + simulationTime + " ms simulated");
+        System.out.println("  - Seed: " + seed);
+        System.out.println("  - JMX: " + NorthPoleCounters.OBJECT_NAME);
+        if (metricsPort >= 0) {
+            System.out.println("  - Metrics: http://localhost:" + metricsPort + "/metrics");
+        }
+        System.out.println("  - Log: " + (logMode.equals("async") ? "async ring buffer" : logMode)
+                + (journal != null ? ", journal in " + journal : ""));
+        if (profileLocks) {
+            System.out.println("  - Lock profiling: on");
+        }
         System.out.println("============================================================");
         System.out.println("\nStarting simulation...\n");
 
-        // Create Santa thread
-        Santa santa = new Santa();
-        santa.setDaemon(true);
-        santa.start();
-
-        // Create reindeer threads
-        Reindeer[] reindeerThreads = new Reindeer[NUM_REINDEER];
-        for (int i = 0; i < NUM_REINDEER; i++) {
-            reindeerThreads[i] = new Reindeer(i + 1);
-            reindeerThreads[i].setDaemon(true);
-            reindeerThreads[i].start();
-        }
+        // Create Santa, reindeer and elf threads
+        northPole.start();
 
-        // Create elf threads
-        Elf[] elfThreads = new Elf[NUM_ELVES];
-        for (int i = 0; i < NUM_ELVES; i++) {
-            elfThreads[i] = new Elf(i + 1);
-            elfThreads[i].setDaemon(true);
-            elfThreads[i].start();
+        // Serve metrics once every actor thread exists
+        MetricsServer metrics = null;
+        if (metricsPort >= 0) {
+            metrics = new MetricsServer(northPole, metricsPort);
+            metrics.start();
         }
 
         // Let simulation run
         try {
-            Thread.sleep(SIMULATION_TIME);
+            clock.sleep(simulationTime);
         } catch (InterruptedException e) {
             System.out.println("\nSimulation interrupted by user.");
         }
 
+        // Stop the actors so the totals end where the journal does, then
+        // print whatever is still queued before the statistics
+        int alive = northPole.elvesAlive();
+        try {
+            northPole.stop();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.close();
+        if (metrics != null) {
+            metrics.stop();
+        }
+
         System.out.println("\n============================================================");
         System.out.println("Simulation Complete!");
         System.out.println("============================================================");
         System.out.println("Statistics:");
-        System.out.println("  - Total Deliveries: " + deliveries);
-        System.out.println("  - Total Elf Consultations: " + elfConsultations);
+        System.out.println("  - Total Deliveries: " + northPole.deliveries());
+        System.out.println("  - Total Elf Consultations: " + northPole.elfConsultations());
+        System.out.println("  - Elf wait:      " + northPole.elfWaits().snapshot().summary());
+        System.out.println("  - Reindeer wait: " + northPole.reindeerWaits().snapshot().summary());
+        System.out.println("  - Santa sleep:   " + northPole.santaSleeps().snapshot().summary());
+        System.out.println("  - Deliveries per reindeer:    " + northPole.reindeerTripSpread());
+        System.out.println("  - Consultations per elf:      " + northPole.elfHelpSpread());
+        if (profileLocks) {
+            System.out.println("Lock contention (real time):");
+            for (ProfiledMonitor.Snapshot lock : ((MonitorCoordinator) coordinator).lockProfile()) {
+                System.out.println("  - " + lock.summary());
+            }
+        }
+
+        System.gc();
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        System.out.println("  - Elf threads alive: " + alive + " of " + numElves + (virtual ? " (virtual)" : ""));
+        System.out.println("  - Heap used: " + heap.getUsed() / (1024 * 1024) + " MB (committed "
+                + heap.getCommitted() / (1024 * 1024) + " MB)");
         System.out.println("============================================================");
     }
 }
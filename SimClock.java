@@ -0,0 +1,328 @@
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Santa Claus Problem - Simulation Clock
+ *
+ * Every simulated duration (vacations, toy work, harnessing, consultations,
+ * Santa's preparation and the simulation time itself) goes through a SimClock,
+ * chosen at startup with --clock=<mode>:
+ *
+ * 1. wall       - real time, Thread.sleep
+ * 2. scaled:<k> - real time divided by k, e.g. scaled:1000 turns 2 s into 2 ms
+ * 3. virtual    - no real waiting at all: whenever every registered thread is
+ *                 blocked, time jumps straight to the earliest pending wake-up
+ *
+ * The virtual clock only sees its own sleeps, so the coordination engines
+ * tell it when an actor blocks on something else and when they wake one up
+ * (blocked, woke, park and unpark). The other clocks ignore those calls.
+ */
+public interface SimClock {
+
+    /**
+     * Simulated milliseconds since the clock was created
+     */
+    long now();
+
+    /**
+     * Simulated nanoseconds since the clock was created, for measuring short
+     * waits. Only as fine as the clock itself: the virtual clock moves in
+     * whole milliseconds.
+     */
+    default long nanoTime() {
+        return TimeUnit.MILLISECONDS.toNanos(now());
+    }
+
+    /**
+     * Sleep for the given number of simulated milliseconds
+     */
+    void sleep(long millis) throws InterruptedException;
+
+    /**
+     * Make a thread known to the clock. Only the virtual clock uses this, to
+     * decide when all simulated work is blocked and time may move on.
+     */
+    default void register(Thread thread) {
+    }
+
+    /**
+     * Whether blocked() and woke() are counted at all, so engines can skip
+     * their own bookkeeping for the real-time clocks
+     */
+    default boolean countsThreads() {
+        return false;
+    }
+
+    /**
+     * The given number of registered threads (usually just the caller) are
+     * about to block on something other than the clock
+     */
+    default void blocked(int threads) {
+    }
+
+    /**
+     * The given number of threads counted by blocked() have been woken up.
+     * Called by the thread that wakes them, before they get going, so the
+     * virtual clock cannot move on in between.
+     */
+    default void woke(int threads) {
+    }
+
+    /**
+     * LockSupport.park, counted as blocking. Like LockSupport.park it can
+     * return spuriously, so callers re-check what they wait for.
+     */
+    default void park(Object blocker) {
+        LockSupport.park(blocker);
+    }
+
+    /**
+     * LockSupport.unpark, counting the thread as woken if it was parked in park()
+     */
+    default void unpark(Thread thread) {
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Release any thread the clock runs on its own
+     */
+    default void close() {
+    }
+
+    String description();
+
+    /**
+     * Create the clock for a --clock=<mode> value
+     */
+    static SimClock create(String mode) {
+        if (mode.equals("wall")) {
+            return new WallClock();
+        } else if (mode.startsWith("scaled:")) {
+            return new ScaledClock(Long.parseLong(mode.substring("scaled:".length())));
+        } else if (mode.equals("virtual")) {
+            return new VirtualClock();
+        }
+        throw new IllegalArgumentException("Unknown clock: " + mode);
+    }
+
+    /**
+     * Real time
+     */
+    class WallClock implements SimClock {
+        private final long start = System.nanoTime();
+
+        public long now() {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        }
+
+        public long nanoTime() {
+            return System.nanoTime() - start;
+        }
+
+        public void sleep(long millis) throws InterruptedException {
+            Thread.sleep(millis);
+        }
+
+        public String description() {
+            return "wall";
+        }
+    }
+
+    /**
+     * Real time running factor times faster
+     */
+    class ScaledClock implements SimClock {
+        private final long start = System.nanoTime();
+        private final long factor;
+
+        public ScaledClock(long factor) {
+            if (factor <= 0) {
+                throw new IllegalArgumentException("Clock scale must be positive: " + factor);
+            }
+            this.factor = factor;
+        }
+
+        public long now() {
+            return TimeUnit.NANOSECONDS.toMillis((System.nanoTime() - start) * factor);
+        }
+
+        public long nanoTime() {
+            return (System.nanoTime() - start) * factor;
+        }
+
+        public void sleep(long millis) throws InterruptedException {
+            // Thread.sleep rounds up to whole milliseconds, park to the nanosecond instead
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis) / factor;
+            long remaining;
+            while ((remaining = deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, remaining);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        }
+
+        public String description() {
+            return "scaled " + factor + "x";
+        }
+    }
+
+    /**
+     * Fully virtual time. The clock counts the registered threads that are
+     * runnable: sleep() and blocked() take a thread off the count, and the
+     * advancer or whoever wakes a thread (woke() and unpark()) puts it back
+     * before it runs. When the count reaches zero a daemon thread advances the
+     * clock to the earliest pending wake-up.
+     */
+    class VirtualClock implements SimClock {
+        private static final int RUNNING = 0;
+        private static final int PARKED = 1;
+        private static final int NOTIFIED = 2;
+
+        private volatile long now = 0;
+        private final AtomicLong sequence = new AtomicLong();
+        private final AtomicInteger runnable = new AtomicInteger();
+        private final PriorityBlockingQueue<Sleeper> sleepers = new PriorityBlockingQueue<>();
+        // Per registered thread: RUNNING, PARKED in park(), or NOTIFIED by an unpark() before it parked
+        private final ConcurrentHashMap<Thread, AtomicInteger> parkStates = new ConcurrentHashMap<>();
+        private final Thread advancer;
+        private volatile boolean running = true;
+
+        private static class Sleeper implements Comparable<Sleeper> {
+            final long wakeAt;
+            final long sequence;
+            final Thread thread = Thread.currentThread();
+            volatile boolean released = false;
+
+            Sleeper(long wakeAt, long sequence) {
+                this.wakeAt = wakeAt;
+                this.sequence = sequence;
+            }
+
+            public int compareTo(Sleeper other) {
+                if (wakeAt != other.wakeAt) {
+                    return Long.compare(wakeAt, other.wakeAt);
+                }
+                return Long.compare(sequence, other.sequence);
+            }
+        }
+
+        public VirtualClock() {
+            register(Thread.currentThread());
+            advancer = new Thread(this::advance, "virtual-clock");
+            advancer.setDaemon(true);
+            advancer.start();
+        }
+
+        public long now() {
+            return now;
+        }
+
+        public void register(Thread thread) {
+            parkStates.put(thread, new AtomicInteger(RUNNING));
+            runnable.incrementAndGet();
+        }
+
+        public boolean countsThreads() {
+            return true;
+        }
+
+        public void blocked(int threads) {
+            if (runnable.addAndGet(-threads) == 0) {
+                LockSupport.unpark(advancer);
+            }
+        }
+
+        public void woke(int threads) {
+            runnable.addAndGet(threads);
+        }
+
+        public void park(Object blocker) {
+            AtomicInteger state = parkStates.get(Thread.currentThread());
+            if (state == null) {
+                LockSupport.park(blocker);
+                return;
+            }
+            // An unpark() that came first means there is no need to block
+            if (state.compareAndSet(NOTIFIED, RUNNING) || !state.compareAndSet(RUNNING, PARKED)) {
+                state.set(RUNNING);
+                return;
+            }
+            // PARKED before blocked(), so an unpark in between counts us back in
+            blocked(1);
+            LockSupport.park(blocker);
+            // Nobody unparked us through the clock (spurious return, interrupt or an old permit)
+            if (state.compareAndSet(PARKED, RUNNING)) {
+                woke(1);
+            }
+        }
+
+        public void unpark(Thread thread) {
+            AtomicInteger state = parkStates.get(thread);
+            while (state != null) {
+                int current = state.get();
+                if (current == PARKED && state.compareAndSet(PARKED, RUNNING)) {
+                    woke(1);
+                    break;
+                } else if (current == NOTIFIED || (current == RUNNING && state.compareAndSet(RUNNING, NOTIFIED))) {
+                    break;
+                }
+            }
+            LockSupport.unpark(thread);
+        }
+
+        public String description() {
+            return "virtual";
+        }
+
+        public void close() {
+            running = false;
+            LockSupport.unpark(advancer);
+        }
+
+        public void sleep(long millis) throws InterruptedException {
+            if (millis <= 0) {
+                return;
+            }
+            Sleeper sleeper = new Sleeper(now + millis, sequence.incrementAndGet());
+            sleepers.add(sleeper);
+            blocked(1);
+            while (!sleeper.released) {
+                LockSupport.park(this);
+                if (Thread.interrupted()) {
+                    // Whoever takes the sleeper out of the queue counts it as runnable again
+                    if (sleepers.remove(sleeper)) {
+                        woke(1);
+                    }
+                    throw new InterruptedException();
+                }
+            }
+        }
+
+        private void advance() {
+            while (running) {
+                Sleeper next = sleepers.peek();
+                if (next == null || runnable.get() != 0) {
+                    // The thread that takes the count to zero unparks us
+                    LockSupport.park(this);
+                    continue;
+                }
+
+                // Jump to the earliest wake-up and release everyone due at that time
+                now = Math.max(now, next.wakeAt);
+                Sleeper due;
+                while ((due = sleepers.peek()) != null && due.wakeAt <= now) {
+                    if (sleepers.remove(due)) {
+                        woke(1);
+                        due.released = true;
+                        LockSupport.unpark(due.thread);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Santa Claus Problem - Wake-up Latency Benchmark
+ *
+ * Measures the real time from the last arrival of a group to Santa acting on
+ * it: from the ninth reindeer marking the team ready and waking Santa to
+ * Santa returning from awaitSantaWork into handleReindeer, and the same for
+ * the third elf of a group and handleElves.
+ *
+ * The engines report the last arrival through the log (REINDEER_LAST and
+ * ELF_GROUP_FORMED, both logged just before Santa is woken), so the engines
+ * are measured unchanged. Reindeer and elves pause briefly between rounds
+ * so that Santa is asleep when the group completes; a sample where the group
+ * completed before Santa went to sleep is not counted.
+ *
+ * Waiting strategies compared:
+ * - monitor        - Santa waits on santaLock, the last arrival calls notify()
+ * - condition      - Santa awaits a Condition (AbstractQueuedSynchronizer park)
+ * - lockfree       - Santa parks with LockSupport, the last arrival unparks him
+ * - lockfree+spin  - Santa spins (Thread.onSpinWait) before parking
+ *
+ * The phaser engine logs the last arrival only after the Phaser has already
+ * released Santa, so it is left out. Results are percentiles of the sampled
+ * times in microseconds.
+ *
+ * Usage: java WakeupLatencyBenchmark [--engine=<name>[,<name>...]] [--samples=<n>] [--spins=<n>]
+ */
+public class WakeupLatencyBenchmark {
+    private static final int NUM_REINDEER = 9;
+    private static final int ELF_GROUP_SIZE = 3;
+    private static final int WARMUP_SAMPLES = 2000;
+    private static final long PAUSE_NANOS = 200_000; // between rounds, so Santa falls asleep
+    private static final long STOP_TIMEOUT = 5000; // milliseconds
+
+    /**
+     * Records when the last member of a group arrived
+     */
+    private static class ArrivalLog implements NorthPoleLog {
+        volatile long lastArrival = 0;
+
+        public void event(NorthPoleEvent event, int actor, int value) {
+            if (event == NorthPoleEvent.REINDEER_LAST || event == NorthPoleEvent.ELF_GROUP_FORMED) {
+                lastArrival = System.nanoTime();
+            }
+        }
+    }
+
+    private static NorthPoleCoordinator coordinator(String engine, int spins, ArrivalLog log) {
+        if (engine.equals("lockfree+spin")) {
+            return new LockFreeCoordinator(NUM_REINDEER, ELF_GROUP_SIZE, ELF_GROUP_SIZE, new SimClock.WallClock(),
+                    log, spins);
+        }
+        return NorthPoleCoordinator.create(engine, NUM_REINDEER, ELF_GROUP_SIZE, ELF_GROUP_SIZE, true, false,
+                false, new SimClock.WallClock(), log);
+    }
+
+    private static Thread start(Runnable actor) {
+        Thread thread = new Thread(actor);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Wake-up latencies for one engine and one group, in nanoseconds
+     */
+    static LatencyHistogram measure(String engine, NorthPoleCoordinator.Group group, int warmup, int samples,
+                                    int spins) throws InterruptedException {
+        ArrivalLog log = new ArrivalLog();
+        NorthPoleCoordinator coordinator = coordinator(engine, spins, log);
+        boolean reindeer = group == NorthPoleCoordinator.Group.REINDEER;
+
+        List<Thread> threads = new ArrayList<>();
+        int members = reindeer ? NUM_REINDEER : ELF_GROUP_SIZE;
+        for (int i = 0; i < members; i++) {
+            final int id = i + 1;
+            threads.add(start(() -> {
+                try {
+                    while (!Thread.interrupted()) {
+                        LockSupport.parkNanos(PAUSE_NANOS);
+                        if (reindeer) {
+                            coordinator.arriveReindeer(id, () -> { });
+                        } else {
+                            coordinator.arriveElf(id, () -> { });
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    // Benchmark finished
+                }
+            }));
+        }
+
+        // Santa runs on this thread
+        LatencyHistogram latencies = new LatencyHistogram();
+        int recorded = 0;
+        int skipped = 0;
+        while (recorded < warmup + samples) {
+            long asleep = System.nanoTime();
+            NorthPoleCoordinator.Group woken = coordinator.awaitSantaWork();
+            long awake = System.nanoTime();
+            long arrived = log.lastArrival;
+            coordinator.releaseGroup(woken, () -> { });
+
+            if (arrived < asleep) {
+                // The group was complete before Santa went to sleep
+                skipped++;
+                continue;
+            }
+            if (recorded++ >= warmup) {
+                latencies.record(awake - arrived);
+            }
+        }
+
+        for (Thread t : threads) {
+            t.interrupt();
+        }
+        for (Thread t : threads) {
+            t.join(STOP_TIMEOUT);
+        }
+        if (skipped > samples / 10) {
+            System.err.println("  note: " + engine + " " + group + ": " + skipped
+                    + " rounds were ready before Santa slept");
+        }
+        return latencies;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        String[] engines = {"monitor", "condition", "lockfree", "lockfree+spin"};
+        int samples = 10000;
+        int spins = 1 << 14;
+        for (String arg : args) {
+            if (arg.startsWith("--engine=")) {
+                engines = arg.substring("--engine=".length()).split(",");
+            } else if (arg.startsWith("--samples=")) {
+                samples = Integer.parseInt(arg.substring("--samples=".length()));
+            } else if (arg.startsWith("--spins=")) {
+                spins = Integer.parseInt(arg.substring("--spins=".length()));
+            } else {
+                System.err.println("Unknown option: " + arg);
+                System.exit(1);
+            }
+        }
+
+        System.out.println("============================================================");
+        System.out.println("WAKE-UP LATENCY BENCHMARK - " + samples + " samples per case, last arrival to Santa awake");
+        System.out.println("============================================================");
+        System.out.printf("  %-14s %-9s %10s %10s %10s %10s %10s%n",
+                "engine", "group", "p50 us", "p90 us", "p99 us", "p99.9 us", "max us");
+        for (NorthPoleCoordinator.Group group : NorthPoleCoordinator.Group.values()) {
+            for (String engine : engines) {
+                LatencyHistogram.Snapshot latencies = measure(engine, group, WARMUP_SAMPLES, samples, spins).snapshot();
+                System.out.printf("  %-14s %-9s %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                        engine, group.name().toLowerCase(),
+                        latencies.percentile(0.50) / 1e3, latencies.percentile(0.90) / 1e3,
+                        latencies.percentile(0.99) / 1e3, latencies.percentile(0.999) / 1e3,
+                        latencies.max() / 1e3);
+            }
+        }
+        System.out.println("============================================================");
+    }
+}
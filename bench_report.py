@@ -0,0 +1,196 @@
+#!/usr/bin/env python3
+"""
+Santa Claus Problem - Cross-Language Benchmark Report
+
+Runs every implementation on every config in test_cases.json with an
+accelerated clock and writes a JSON report of throughput, wait-time
+percentiles, peak RSS and CPU time per run. Called by the benchmark mode of
+run_tests.sh once the implementations are built, but it runs on its own too:
+
+    python3 bench_report.py --scale=10 --languages=java,c,python
+
+- Java runs with --clock=scaled:K and --config=<test case>
+- C is rebuilt per config with the config and -DTIME_SCALE=K as defines
+- Python and Go get the config as flags and --time-scale=K
+
+Wait-time percentiles are Java only: the C, Python and Go versions do not
+measure how long anyone waits, so their wait_ms is null and the report says
+so in its notes.
+
+Exits non-zero if any run fails.
+"""
+
+import argparse
+import json
+import os
+import platform
+import re
+import subprocess
+import sys
+import threading
+import time
+
+LANGUAGES = ("java", "c", "python", "go")
+
+
+def measure(command, output_file, timeout):
+    """Run one implementation, returning its exit code, wall time and its own rusage"""
+    with open(output_file, "w") as out:
+        start = time.monotonic()
+        process = subprocess.Popen(command, stdout=out, stderr=subprocess.STDOUT)
+        timer = threading.Timer(timeout, process.kill)
+        timer.start()
+        _, status, usage = os.wait4(process.pid, 0)
+        timer.cancel()
+        wall = time.monotonic() - start
+    return os.waitstatus_to_exitcode(status), wall, usage
+
+
+def percentiles(line):
+    match = re.search(r"p50 ([\d.]+) ms\s+p99 ([\d.]+) ms\s+p99\.9 ([\d.]+) ms\s+max ([\d.]+) ms", line or "")
+    if not match:
+        return None
+    return dict(zip(("p50", "p99", "p99.9", "max"), (float(v) for v in match.groups())))
+
+
+def parse(output_file):
+    """Deliveries, consultations and (Java only) wait percentiles from one run's output"""
+    with open(output_file, errors="replace") as f:
+        text = f.read()
+
+    def total(label):
+        match = re.search(label + r": (\d+)", text)
+        return int(match.group(1)) if match else None
+
+    def line(label):
+        match = re.search(r"- " + label + r":\s+(.*)", text)
+        return match.group(1) if match else None
+
+    waits = {"elf": percentiles(line("Elf wait")),
+             "reindeer": percentiles(line("Reindeer wait")),
+             "santa_sleep": percentiles(line("Santa sleep"))}
+    return total("Total Deliveries"), total("Total Elf Consultations"), \
+        waits if any(waits.values()) else None
+
+
+def per_second(count, seconds):
+    return round(count / seconds, 4) if count is not None else None
+
+
+def slug(name):
+    """As NorthPoleConfig.slug names a test case"""
+    return re.sub(r"[^a-z0-9]+", "_", name.lower()).strip("_")
+
+
+def commands(case, languages, scale, results_dir, skipped):
+    """(language, command) for every language that can run this test case"""
+    name, config = case["name"], case["config"]
+    seconds = config["simulation_time"]
+    runs = []
+    if "java" in languages:
+        runs.append(("Java", ["java", "SantaClaus", "--clock=scaled:%d" % scale, "--config=" + slug(name)]))
+    if "c" in languages:
+        binary = os.path.join(results_dir, "sc-c-bench-" + slug(name))
+        build = subprocess.run(["gcc", "-pthread", "-O2", "-o", binary, "sc-c.c",
+                                "-DNUM_ELVES=%d" % config["num_elves"],
+                                "-DELF_GROUP_SIZE=%d" % config["elf_group_size"],
+                                "-DSIMULATION_TIME=%d" % seconds, "-DTIME_SCALE=%d" % scale])
+        if build.returncode == 0:
+            runs.append(("C", [binary]))
+        else:
+            skipped.append({"language": "C", "test": name, "reason": "build failed"})
+    flags = ["--num-elves=%d" % config["num_elves"], "--elf-group-size=%d" % config["elf_group_size"],
+             "--time=%d" % seconds, "--time-scale=%d" % scale]
+    if "python" in languages:
+        runs.append(("Python", ["python3", "sc-python.py"] + flags))
+    if "go" in languages:
+        runs.append(("Go", ["./santaclause"] + flags))
+    return runs
+
+
+def main():
+    parser = argparse.ArgumentParser(description="Benchmark every implementation on every test case")
+    parser.add_argument("--scale", type=int, default=10, help="clock acceleration (default 10)")
+    parser.add_argument("--languages", default=",".join(LANGUAGES),
+                        help="comma-separated subset of " + ",".join(LANGUAGES))
+    parser.add_argument("--results-dir", default="test_results", help="where outputs and the report go")
+    parser.add_argument("--timestamp", default=time.strftime("%Y%m%d_%H%M%S"))
+    parser.add_argument("--report", help="report file (default <results-dir>/benchmark_<timestamp>.json)")
+    parser.add_argument("--skip", action="append", default=[], metavar="LANGUAGE=REASON",
+                        help="record a language that could not be built, e.g. Go=\"go build failed\"")
+    args = parser.parse_args()
+
+    languages = set(args.languages.split(",")) if args.languages else set()
+    unknown = languages - set(LANGUAGES)
+    if unknown:
+        parser.error("unknown language(s): " + ", ".join(sorted(unknown)))
+    os.makedirs(args.results_dir, exist_ok=True)
+    report = args.report or os.path.join(args.results_dir, "benchmark_%s.json" % args.timestamp)
+
+    skipped = []
+    for entry in args.skip:
+        language, _, reason = entry.partition("=")
+        print("  %-6s skipped: %s" % (language, reason))
+        skipped.append({"language": language, "reason": reason})
+        languages.discard(language.lower())
+
+    with open("test_cases.json") as f:
+        cases = json.load(f)["test_cases"]
+
+    results = []
+    for case in cases:
+        name, config = case["name"], case["config"]
+        seconds = config["simulation_time"]
+        for language, command in commands(case, languages, args.scale, args.results_dir, skipped):
+            output_file = os.path.join(args.results_dir,
+                                       "bench_%s_%s_%s.txt" % (language.lower(), slug(name), args.timestamp))
+            print("  %-6s %-32s" % (language, name), end="", flush=True)
+            exit_code, wall, usage = measure(command, output_file, seconds / args.scale + 30)
+            deliveries, consultations, waits = parse(output_file)
+            ok = exit_code == 0 and deliveries is not None
+            results.append({
+                "test": name,
+                "language": language,
+                "config": config,
+                "status": "ok" if ok else "failed",
+                "exit_code": exit_code,
+                "wall_seconds": round(wall, 3),
+                "cpu_user_seconds": round(usage.ru_utime, 3),
+                "cpu_system_seconds": round(usage.ru_stime, 3),
+                "max_rss_kb": usage.ru_maxrss,
+                "deliveries": deliveries,
+                "elf_consultations": consultations,
+                "deliveries_per_simulated_second": per_second(deliveries, seconds),
+                "consultations_per_simulated_second": per_second(consultations, seconds),
+                "wait_ms": waits,
+                "output": output_file,
+            })
+            elf_p99 = "%8.1f ms" % waits["elf"]["p99"] if waits and waits["elf"] else "         -"
+            print("%s %4s deliveries %5s consultations  elf p99 %s  cpu %6.2f s  rss %7d KB" % (
+                "ok    " if ok else "FAILED", deliveries, consultations, elf_p99,
+                usage.ru_utime + usage.ru_stime, usage.ru_maxrss))
+            if language == "C":
+                os.remove(command[0])
+
+    with open(report, "w") as out:
+        json.dump({
+            "timestamp": args.timestamp,
+            "time_scale": args.scale,
+            "host": {"platform": platform.platform(), "cpus": os.cpu_count()},
+            "notes": {
+                "wait_ms": "Java only, in simulated milliseconds: the C, Python and Go versions do not "
+                           "measure wait times, so theirs is null",
+                "wait_ms_languages": ["Java"],
+            },
+            "results": results,
+            "skipped": skipped,
+        }, out, indent=2)
+        out.write("\n")
+
+    print("\nWait times (elf p99) are measured by the Java version only")
+    print("Report: " + report)
+    return 0 if all(r["status"] == "ok" for r in results) else 1
+
+
+if __name__ == "__main__":
+    sys.exit(main())
@@ -11,7 +11,19 @@
 #   -a, --all       Run all test cases (default)
 #   -q, --quick     Run only quick tests (10s duration)
 #   -l, --language  Run specific language (python|c|java)
+#   -b, --benchmark Benchmark mode: run every config in test_cases.json on an
+#                   accelerated clock and write a JSON performance report
+#   -s, --scale K   Clock acceleration for benchmark mode (default 10)
 #   -h, --help      Show this help message
+#
+# Benchmark mode builds the implementations and hands them to bench_report.py,
+# which runs every language on the same configs: Java with --clock=scaled:K,
+# C built per config with -DTIME_SCALE=K, and Python and Go with
+# --time-scale=K and the config as flags. It records throughput, wait-time
+# percentiles (Java only, the others do not measure them), peak RSS and CPU
+# time per run in test_results/benchmark_<timestamp>.json. A language that
+# fails to build (e.g. no go toolchain) is listed in the report as skipped,
+# with the reason.
 ################################################################################
 
 # Colors for output
@@ -26,7 +38,9 @@ RUN_PYTHON=true
 RUN_C=true
 RUN_JAVA=true
 RUN_GO=true
+GO_SKIPPED=""
 TEST_MODE="all"
+TIME_SCALE=10
 
 # Parse command line arguments
 while [[ $# -gt 0 ]]; do
@@ -35,6 +49,14 @@ while [[ $# -gt 0 ]]; do
             TEST_MODE="quick"
             shift
             ;;
+        -b|--benchmark)
+            TEST_MODE="benchmark"
+            shift
+            ;;
+        -s|--scale)
+            TIME_SCALE=$2
+            shift 2
+            ;;
         -l|--language)
             case $2 in
                 python)
@@ -188,6 +210,34 @@ analyze_output() {
     echo ""
 }
 
+# Benchmark every config in test_cases.json and write the JSON report
+run_benchmarks() {
+    local report="$RESULTS_DIR/benchmark_${TIMESTAMP}.json"
+
+    print_header "BENCHMARK PHASE (clock x$TIME_SCALE)"
+    log_message "Benchmark started: scale $TIME_SCALE"
+
+    local languages=""
+    [ "$RUN_JAVA" = true ] && languages="$languages,java"
+    [ "$RUN_C" = true ] && languages="$languages,c"
+    [ "$RUN_PYTHON" = true ] && languages="$languages,python"
+    [ "$RUN_GO" = true ] && languages="$languages,go"
+    local skip=()
+    [ -n "$GO_SKIPPED" ] && skip=(--skip="Go=$GO_SKIPPED")
+
+    python3 bench_report.py --scale="$TIME_SCALE" --languages="${languages#,}" \
+            --results-dir="$RESULTS_DIR" --timestamp="$TIMESTAMP" --report="$report" "${skip[@]}"
+    local status=$?
+    if [ $status -eq 0 ]; then
+        print_success "Benchmark complete"
+        log_message "Benchmark complete: $report"
+    else
+        print_error "Some benchmark runs failed (see $report)"
+        log_message "Benchmark FAILED: $report"
+    fi
+    return $status
+}
+
 ################################################################################
 # Main Test Execution
 ################################################################################
@@ -249,6 +299,7 @@ if [ "$RUN_GO" = true ]; then
         print_error "Go compilation failed (see $RESULTS_DIR/go_compile.log)"
         log_message "Go compilation: FAILED"
         RUN_GO=false
+        GO_SKIPPED="go build failed, see $RESULTS_DIR/go_compile.log"
     fi
 fi
 
@@ -267,6 +318,13 @@ fi
 
 echo ""
 
+if [ "$TEST_MODE" = "benchmark" ]; then
+    run_benchmarks
+    status=$?
+    rm -f sc-c *.class santaclause
+    exit $status
+fi
+
 ################################################################################
 # Test Execution Phase
 ################################################################################
@@ -351,4 +409,4 @@ fi
 # Cleanup compiled files
 ################################################################################
 
-rm -f sc-c SantaClaus.class santaclause
+rm -f sc-c *.class santaclause
@@ -15,21 +15,29 @@ Seven Semaphores/Mutexes Used:
 5. reindeerMutex	– protects reindeer waiting counter updates
 6. elfMutex		– protects elf waiting counter updates
 7. santaMutex	– protects santa's state
+
+The configuration can be overridden with flags, e.g. for the benchmark mode
+of run_tests.sh: ./santaclause --num-elves=30 --time=45 --time-scale=10
+--time-scale divides every sleep, so the simulation runs that many times faster.
 */
 package main
 
 import (
+	"flag"
 	"fmt"
 	"math/rand"
 	"sync"
 	"time"
 )
 
-const (
-	NUM_REINDEER   = 9
-	NUM_ELVES      = 10
-	ELF_GROUP_SIZE = 3
-	SIMULATION_TIME = 30 * time.Second
+const NUM_REINDEER = 9
+
+// Configuration, set from the flags in main
+var (
+	NUM_ELVES       = 10
+	ELF_GROUP_SIZE  = 3
+	SIMULATION_TIME = 30 // seconds
+	TIME_SCALE      = 1
 )
 
 // Semepahores and Mutexes
@@ -56,6 +64,12 @@ func randomSleepMs(minMs, maxMs int) time.Duration {
 	return time.Duration(ms) * time.Millisecond
 }
 
+// Function: simSleep
+// Description: Sleeps for the given simulated duration
+func simSleep(d time.Duration) {
+	time.Sleep(d / time.Duration(TIME_SCALE))
+}
+
 // Function: santaThread
 // Description: Santa's main loop
 func santaThread(wg *sync.WaitGroup) {
@@ -80,7 +94,7 @@ func santaThread(wg *sync.WaitGroup) {
 			reindeerCount = 0
 			reindeerMutex.Unlock()
 
-			time.Sleep(500 * time.Millisecond)
+			simSleep(500 * time.Millisecond)
 			statsMutex.Lock()
 			deliveries++
 			statsMutex.Unlock()
@@ -95,7 +109,7 @@ func santaThread(wg *sync.WaitGroup) {
 		// Check elves
 		elfMutex.Lock()
 		if elfCount == ELF_GROUP_SIZE {
-			fmt.Println("\nSANTA: Three elves need help!")
+			fmt.Printf("\nSANTA: %d elves need help!\n", ELF_GROUP_SIZE)
 			fmt.Println("SANTA: Meeting with elves...")
 
 			// Release the three elves for consultation
@@ -106,7 +120,7 @@ func santaThread(wg *sync.WaitGroup) {
 			elfCount = 0
 			elfMutex.Unlock()
 
-			time.Sleep(300 * time.Millisecond)
+			simSleep(300 * time.Millisecond)
 			statsMutex.Lock()
 			elfConsultations++
 			statsMutex.Unlock()
@@ -125,7 +139,7 @@ func reindeerThread(id int, wg *sync.WaitGroup) {
 	defer wg.Done()
 	for {
 		// Vacation in the tropics
-		time.Sleep(randomSleepMs(2000, 5000))
+		simSleep(randomSleepMs(2000, 5000))
 
 		fmt.Printf("Reindeer %d: Returning from vacation\n", id)
 
@@ -144,7 +158,7 @@ func reindeerThread(id int, wg *sync.WaitGroup) {
 		// Wait to be harnessed
 		<-reindeerSem
 		fmt.Printf("Reindeer %d: Getting harnessed to sleigh\n", id)
-		time.Sleep(100 * time.Millisecond)
+		simSleep(100 * time.Millisecond)
 		fmt.Printf("Reindeer %d: Harnessed! Ready to deliver toys!\n", id)
 	}
 }
@@ -155,7 +169,7 @@ func elfThread(id int, wg *sync.WaitGroup) {
 	defer wg.Done()
 	for {
 		// Work on toys
-		time.Sleep(randomSleepMs(1000, 4000))
+		simSleep(randomSleepMs(1000, 4000))
 
 		elfMutex.Lock()
 		waitingElves++
@@ -178,12 +192,18 @@ func elfThread(id int, wg *sync.WaitGroup) {
 		// Wait Semaphore elf help
 		<-elfSem
 		fmt.Printf("Elf %d: Getting help from Santa...\n", id)
-		time.Sleep(100 * time.Millisecond)
+		simSleep(100 * time.Millisecond)
 		fmt.Printf("Elf %d: Problem solved! Back to work!\n", id)
 	}
 }
 
 func main() {
+	flag.IntVar(&NUM_ELVES, "num-elves", NUM_ELVES, "number of elves")
+	flag.IntVar(&ELF_GROUP_SIZE, "elf-group-size", ELF_GROUP_SIZE, "elves per consultation group")
+	flag.IntVar(&SIMULATION_TIME, "time", SIMULATION_TIME, "simulated seconds")
+	flag.IntVar(&TIME_SCALE, "time-scale", TIME_SCALE, "divides every sleep")
+	flag.Parse()
+
 	rand.Seed(time.Now().UnixNano())
 
 	fmt.Println("============================================================")
@@ -221,7 +241,7 @@ func main() {
 	}
 
 	// Let simulation run for SIMULATION_TIME, then exit
-	time.Sleep(SIMULATION_TIME)
+	simSleep(time.Duration(SIMULATION_TIME) * time.Second)
 
 	// Print statistics (note: GoRoutines are not explicitly stopped; process exits)
 	fmt.Println("\n============================================================")
@@ -18,6 +18,10 @@
  * 7. santa_mutex - Ensures Santa handles one group at a time
  * 
  * This is better the Trono's original solution as it avoids deadlocks and ensures proper prioritization.
+ *
+ * The configuration can be overridden at compile time, e.g. for the benchmark
+ * mode of run_tests.sh: gcc -pthread -DNUM_ELVES=30 -DSIMULATION_TIME=45 -DTIME_SCALE=10
+ * TIME_SCALE divides every sleep, so the simulation runs that many times faster.
  */
 
 #include <stdio.h>
@@ -28,9 +32,18 @@
 #include <time.h>
 
 #define NUM_REINDEER 9
+#ifndef NUM_ELVES
 #define NUM_ELVES 10
+#endif
+#ifndef ELF_GROUP_SIZE
 #define ELF_GROUP_SIZE 3
+#endif
+#ifndef SIMULATION_TIME
 #define SIMULATION_TIME 30
+#endif
+#ifndef TIME_SCALE
+#define TIME_SCALE 1
+#endif
 
 // Semaphores
 sem_t santaSem;
@@ -56,6 +69,14 @@ int randomSleepMs(int minMs, int maxMs) {
     return minMs + (rand() % (maxMs - minMs + 1));
 }
 
+// Sleep for the given number of simulated milliseconds
+void simSleepMs(long ms) {
+    long us = ms * 1000 / TIME_SCALE;
+    struct timespec ts = { us / 1000000, (us % 1000000) * 1000 };
+    while (nanosleep(&ts, &ts) != 0) {
+    }
+}
+
 void *santaThread(void *arg) {
     printf("SANTA: Starting shift at the North Pole\n");
     
@@ -81,7 +102,7 @@ void *santaThread(void *arg) {
             
             pthread_mutex_unlock(&reindeerMutex);
             
-            usleep(500000);  // 0.5 seconds
+            simSleepMs(500);  // 0.5 seconds
             deliveries++;
             printf("SANTA: Sleigh ready! Delivering toys! (Delivery #%d)\n", deliveries);
             printf("SANTA: Going back to sleep...\n\n");
@@ -105,7 +126,7 @@ void *santaThread(void *arg) {
                 
                 pthread_mutex_unlock(&elfMutex);
                 
-                usleep(300000);  // 0.3 seconds
+                simSleepMs(300);  // 0.3 seconds
                 elfConsultations++;
                 printf("SANTA: Consultation complete! (Session #%d)\n", elfConsultations);
                 printf("SANTA: Going back to sleep...\n\n");
@@ -126,7 +147,7 @@ void *reindeerThread(void *arg) {
     
     while (1) {
         // Vacation in the tropics
-        usleep(randomSleepMs(2000, 5000) * 1000);
+        simSleepMs(randomSleepMs(2000, 5000));
         printf("Reindeer %d: Returning from vacation\n", id);
         
         pthread_mutex_lock(&reindeerMutex);
@@ -142,7 +163,7 @@ void *reindeerThread(void *arg) {
         // Wait to be harnessed
         sem_wait(&reindeerSem);
         printf("Reindeer %d: Getting harnessed to sleigh\n", id);
-        usleep(100000);  // 0.1 seconds
+        simSleepMs(100);  // 0.1 seconds
         printf("Reindeer %d: Harnessed! Ready to deliver toys!\n", id);
     }
     
@@ -155,7 +176,7 @@ void *elfThread(void *arg) {
     
     while (1) {
         // Work on toys
-        usleep(randomSleepMs(1000, 4000) * 1000);
+        simSleepMs(randomSleepMs(1000, 4000));
         
         pthread_mutex_lock(&elfMutex);
         waitingElves++;
@@ -174,7 +195,7 @@ void *elfThread(void *arg) {
         // Wait for consultation
         sem_wait(&elfSem);
         printf("Elf %d: Getting help from Santa...\n", id);
-        usleep(100000);  // 0.1 seconds
+        simSleepMs(100);  // 0.1 seconds
         printf("Elf %d: Problem solved! Back to work!\n", id);
     }
     
@@ -222,7 +243,7 @@ int main() {
     }
     
     // Let simulation run
-    sleep(SIMULATION_TIME);
+    simSleepMs(SIMULATION_TIME * 1000L);
     
     printf("\n============================================================\n");
     printf("Simulation Complete!\n");
@@ -19,8 +19,13 @@ This implementation uses 7 semaphores for robust synchronization:
 7. santa_mutex - Ensures Santa handles one group at a time
 
 This is better the Trono's original solution as it avoids deadlocks and ensures proper prioritization.
+
+The configuration can be overridden on the command line, e.g. for the benchmark
+mode of run_tests.sh: python3 sc-python.py --num-elves=30 --time=45 --time-scale=10
+--time-scale divides every sleep, so the simulation runs that many times faster.
 """
 
+import argparse
 import threading
 import time
 import random
@@ -39,16 +44,24 @@ reindeerCount = 0
 elfCount = 0
 waitingElves = 0
 
-# Constants
+# Statistics
+deliveries = 0
+elfConsultations = 0
+
+# Configuration (see main for the command line overrides)
 NUM_REINDEER = 9
 NUM_ELVES = 10
 ELF_GROUP_SIZE = 3
+SIMULATION_TIME = 30  # seconds
+TIME_SCALE = 1
+
+def simSleep(seconds):
+    """Sleep for the given number of simulated seconds"""
+    time.sleep(seconds / TIME_SCALE)
 
 def santa():
     """Santa's main loop - waits to be woken by reindeer or elves"""
-    global reindeerCount, elfCount
-    deliveries = 0
-    elfConsultations = 0
+    global reindeerCount, elfCount, deliveries, elfConsultations
     
     while True:
         # Wait to be woken up
@@ -72,7 +85,7 @@ def santa():
             
             reindeerMutex.release()
             
-            time.sleep(0.5)  # Simulate delivery preparation
+            simSleep(0.5)  # Simulate delivery preparation
             deliveries += 1
             print(f"SANTA: Sleigh ready! Delivering toys! (Delivery #{deliveries})")
             print("SANTA: Going back to sleep...\n")
@@ -83,7 +96,7 @@ def santa():
             # Check if elves need help
             elfMutex.acquire()
             if elfCount == ELF_GROUP_SIZE:
-                print(f"\nSANTA: Three elves need help!")
+                print(f"\nSANTA: {ELF_GROUP_SIZE} elves need help!")
                 print("SANTA: Meeting with elves...")
                 
                 # Reset counter BEFORE releasing elves
@@ -95,7 +108,7 @@ def santa():
                 
                 elfMutex.release()
                 
-                time.sleep(0.3)  # Simulate consultation
+                simSleep(0.3)  # Simulate consultation
                 elfConsultations += 1
                 print(f"SANTA: Consultation complete! (Session #{elfConsultations})")
                 print("SANTA: Going back to sleep...\n")
@@ -108,7 +121,7 @@ def reindeer(id):
     """Reindeer thread - returns from vacation and gets harnessed"""
     while True:
         # Vacation in the tropics
-        time.sleep(random.uniform(2, 5))
+        simSleep(random.uniform(2, 5))
         print(f"Reindeer {id}: Returning from vacation")
         
         reindeerMutex.acquire()
@@ -124,14 +137,14 @@ def reindeer(id):
         # Wait to be harnessed
         reindeerSem.acquire()
         print(f"Reindeer {id}: Getting harnessed to sleigh")
-        time.sleep(0.1)
+        simSleep(0.1)
         print(f"Reindeer {id}: Harnessed! Ready to deliver toys!")
 
 def elf(id):
     """Elf thread - occasionally needs Santa's help"""
     while True:
         # Work on toys
-        time.sleep(random.uniform(1, 4))
+        simSleep(random.uniform(1, 4))
         
         elfMutex.acquire()
         global elfCount, waitingElves
@@ -150,10 +163,22 @@ def elf(id):
         # Wait for consultation
         elfSem.acquire()
         print(f"Elf {id}: Getting help from Santa...")
-        time.sleep(0.1)
+        simSleep(0.1)
         print(f"Elf {id}: Problem solved! Back to work!")
 
 def main():
+    global NUM_ELVES, ELF_GROUP_SIZE, SIMULATION_TIME, TIME_SCALE
+    parser = argparse.ArgumentParser(description="Santa Claus Problem - Python Implementation")
+    parser.add_argument("--num-elves", type=int, default=NUM_ELVES)
+    parser.add_argument("--elf-group-size", type=int, default=ELF_GROUP_SIZE)
+    parser.add_argument("--time", type=float, default=SIMULATION_TIME, help="simulated seconds")
+    parser.add_argument("--time-scale", type=float, default=TIME_SCALE)
+    args = parser.parse_args()
+    NUM_ELVES = args.num_elves
+    ELF_GROUP_SIZE = args.elf_group_size
+    SIMULATION_TIME = args.time
+    TIME_SCALE = args.time_scale
+
     print("=" * 60)
     print("SANTA CLAUS PROBLEM - PYTHON IMPLEMENTATION")
     print("=" * 60)
@@ -185,10 +210,14 @@ def main():
     
     # Let simulation run for a while
     try:
-        time.sleep(30)
+        simSleep(SIMULATION_TIME)
         print("\n" + "=" * 60)
         print("Simulation Complete!")
         print("=" * 60)
+        print("Statistics:")
+        print(f"  - Total Deliveries: {deliveries}")
+        print(f"  - Total Elf Consultations: {elfConsultations}")
+        print("=" * 60)
     except KeyboardInterrupt:
         print("\n\nSimulation interrupted by user.")
 